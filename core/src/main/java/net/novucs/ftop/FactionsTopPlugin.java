@@ -9,6 +9,7 @@ import net.novucs.ftop.hook.*;
 import net.novucs.ftop.listener.CommandListener;
 import net.novucs.ftop.listener.GuiListener;
 import net.novucs.ftop.listener.WorthListener;
+import net.novucs.ftop.manager.BalanceManager;
 import net.novucs.ftop.manager.DatabaseManager;
 import net.novucs.ftop.manager.GuiManager;
 import net.novucs.ftop.manager.SignManager;
@@ -37,6 +38,7 @@ import java.util.logging.Level;
 
 public final class FactionsTopPlugin extends JavaPlugin {
 
+    private final BalanceManager balanceManager = new BalanceManager(this);
     private final ChunkWorthTask chunkWorthTask = new ChunkWorthTask(this);
     private final GuiManager guiManager = new GuiManager(this);
     private final PersistenceTask persistenceTask = new PersistenceTask(this);
@@ -45,6 +47,7 @@ public final class FactionsTopPlugin extends JavaPlugin {
     private final SignManager signManager = new SignManager(this);
     private final WorthManager worthManager = new WorthManager(this);
     private final Set<PluginService> services = new HashSet<>(Arrays.asList(
+            balanceManager,
             signManager,
             worthManager,
             new GuiCommand(this),
@@ -63,6 +66,10 @@ public final class FactionsTopPlugin extends JavaPlugin {
     private FactionsHook factionsHook;
     private DatabaseManager databaseManager;
 
+    public BalanceManager getBalanceManager() {
+        return balanceManager;
+    }
+
     public ChunkWorthTask getChunkWorthTask() {
         return chunkWorthTask;
     }
@@ -83,6 +90,10 @@ public final class FactionsTopPlugin extends JavaPlugin {
         return settings;
     }
 
+    public SignManager getSignManager() {
+        return signManager;
+    }
+
     public WorthManager getWorthManager() {
         return worthManager;
     }
@@ -132,6 +143,23 @@ public final class FactionsTopPlugin extends JavaPlugin {
             getLogger().info("To cancel, type: /ftoprec cancel");
             getLogger().info("----- IMPORTANT -----");
             recalculateTask.initialize();
+        } else if (!recalculateTask.isRunning()) {
+            resumeRecalculation();
+        }
+    }
+
+    private void resumeRecalculation() {
+        long started;
+        try {
+            started = databaseManager.loadRecalculation();
+        } catch (SQLException e) {
+            getLogger().severe("Failed to load the recalculation checkpoint from the database!");
+            getLogger().log(Level.SEVERE, "The error is as follows: ", e);
+            return;
+        }
+
+        if (started >= 0) {
+            recalculateTask.resume(started);
         }
     }
 
@@ -141,15 +169,11 @@ public final class FactionsTopPlugin extends JavaPlugin {
         guiManager.closeInventories();
 
         if (recalculateTask.isRunning()) {
-            recalculateTask.terminate();
+            recalculateTask.suspend();
         }
 
         getLogger().info("Shutting down chunk worth task...");
-        chunkWorthTask.interrupt();
-        try {
-            chunkWorthTask.join();
-        } catch (InterruptedException ignore) {
-        }
+        chunkWorthTask.terminate();
 
         getLogger().info("Saving everything to database...");
         persistenceTask.interrupt();
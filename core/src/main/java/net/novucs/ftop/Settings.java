@@ -11,6 +11,7 @@ import net.novucs.ftop.gui.element.GuiElementType;
 import net.novucs.ftop.gui.element.GuiFactionList;
 import net.novucs.ftop.hook.VaultEconomyHook;
 import net.novucs.ftop.util.GenericUtils;
+import net.novucs.ftop.util.MessageTemplate;
 import org.bukkit.Material;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.InvalidConfigurationException;
@@ -28,7 +29,7 @@ import static net.novucs.ftop.util.StringUtils.format;
 
 public class Settings {
 
-    private static final int LATEST_VERSION = 5;
+    private static final int LATEST_VERSION = 6;
 
     private static final ImmutableList<String> WORTH_HOVER = ImmutableList.of(
             "&e&l-- General --",
@@ -94,18 +95,20 @@ public class Settings {
     private final FactionsTopPlugin plugin;
     private FileConfiguration config;
     private File configFile;
+    private int revision;
 
     // Message settings.
-    private DecimalFormat countFormat;
-    private DecimalFormat currencyFormat;
+    private ThreadLocal<DecimalFormat> countFormat;
+    private ThreadLocal<DecimalFormat> currencyFormat;
     private ButtonMessage backButtonMessage;
     private ButtonMessage nextButtonMessage;
-    private String headerMessage;
+    private MessageTemplate headerMessage;
     private String noEntriesMessage;
-    private String bodyMessage;
-    private List<String> bodyTooltip;
-    private String footerMessage;
+    private MessageTemplate bodyMessage;
+    private List<MessageTemplate> bodyTooltip;
+    private MessageTemplate footerMessage;
     private String permissionMessage;
+    private String renderFailedMessage;
     private String recalculationStartMessage;
     private String recalculationFinishMessage;
     private String recalculationStopMessage;
@@ -120,11 +123,21 @@ public class Settings {
     private List<String> commandAliases;
     private List<String> ignoredFactionIds;
     private boolean disableChestEvents;
+    private long chestReconcileMillis;
     private int factionsPerPage;
     private int signUpdateTicks;
+    private int signUpdateLimit;
     private int liquidUpdateTicks;
+    private int liquidPollsPerTick;
+    private long balanceRefreshMillis;
+    private int balanceRefreshPerTick;
     private int chunkQueueSize;
+    private int chunkScanThreads;
     private int recalculateChunksPerTick;
+    private long recalculateMillisPerTick;
+    private boolean offlineRecalculation;
+    private long sortMillisPerTick;
+    private long scanApplyMillisPerTick;
     private long chunkRecalculateMillis;
     private long databasePersistInterval;
     private boolean databasePersistFactions;
@@ -134,17 +147,28 @@ public class Settings {
     private Map<RecalculateReason, Boolean> bypassRecalculateDelay;
     private Map<EntityType, Double> spawnerPrices;
     private Map<Material, Double> blockPrices;
+    private volatile double[] blockPriceTable;
 
     public Settings(FactionsTopPlugin plugin) {
         this.plugin = plugin;
     }
 
+    /**
+     * Gets the number of times the settings have been loaded, used to
+     * invalidate anything rendered from older settings.
+     *
+     * @return the settings revision.
+     */
+    public int getRevision() {
+        return revision;
+    }
+
     public DecimalFormat getCountFormat() {
-        return countFormat;
+        return countFormat.get();
     }
 
     public DecimalFormat getCurrencyFormat() {
-        return currencyFormat;
+        return currencyFormat.get();
     }
 
     public ButtonMessage getBackButtonMessage() {
@@ -155,7 +179,7 @@ public class Settings {
         return nextButtonMessage;
     }
 
-    public String getHeaderMessage() {
+    public MessageTemplate getHeaderMessage() {
         return headerMessage;
     }
 
@@ -163,15 +187,15 @@ public class Settings {
         return noEntriesMessage;
     }
 
-    public String getBodyMessage() {
+    public MessageTemplate getBodyMessage() {
         return bodyMessage;
     }
 
-    public List<String> getBodyTooltip() {
+    public List<MessageTemplate> getBodyTooltip() {
         return bodyTooltip;
     }
 
-    public String getFooterMessage() {
+    public MessageTemplate getFooterMessage() {
         return footerMessage;
     }
 
@@ -179,6 +203,10 @@ public class Settings {
         return permissionMessage;
     }
 
+    public String getRenderFailedMessage() {
+        return renderFailedMessage;
+    }
+
     public String getRecalculationStartMessage() {
         return recalculationStartMessage;
     }
@@ -219,6 +247,10 @@ public class Settings {
         return disableChestEvents;
     }
 
+    public long getChestReconcileMillis() {
+        return chestReconcileMillis;
+    }
+
     public int getFactionsPerPage() {
         return factionsPerPage;
     }
@@ -227,18 +259,54 @@ public class Settings {
         return signUpdateTicks;
     }
 
+    public int getSignUpdateLimit() {
+        return signUpdateLimit;
+    }
+
     public int getLiquidUpdateTicks() {
         return liquidUpdateTicks;
     }
 
+    public int getLiquidPollsPerTick() {
+        return liquidPollsPerTick;
+    }
+
+    public long getBalanceRefreshMillis() {
+        return balanceRefreshMillis;
+    }
+
+    public int getBalanceRefreshPerTick() {
+        return balanceRefreshPerTick;
+    }
+
     public int getChunkQueueSize() {
         return chunkQueueSize;
     }
 
+    public int getChunkScanThreads() {
+        return chunkScanThreads;
+    }
+
     public int getRecalculateChunksPerTick() {
         return recalculateChunksPerTick;
     }
 
+    public long getRecalculateMillisPerTick() {
+        return recalculateMillisPerTick;
+    }
+
+    public boolean isOfflineRecalculation() {
+        return offlineRecalculation;
+    }
+
+    public long getSortMillisPerTick() {
+        return sortMillisPerTick;
+    }
+
+    public long getScanApplyMillisPerTick() {
+        return scanApplyMillisPerTick;
+    }
+
     public long getChunkRecalculateMillis() {
         return chunkRecalculateMillis;
     }
@@ -275,6 +343,33 @@ public class Settings {
         return blockPrices.getOrDefault(material, 0d);
     }
 
+    /**
+     * Gets the block prices indexed by block type ID, rebuilt on every load.
+     * The returned array must not be modified.
+     *
+     * @return the block price table, empty if no blocks are priced.
+     */
+    public double[] getBlockPriceTable() {
+        return blockPriceTable;
+    }
+
+    private double[] createPriceTable(Map<Material, Double> prices) {
+        int length = 0;
+        for (Map.Entry<Material, Double> entry : prices.entrySet()) {
+            if (entry.getValue() != 0) {
+                length = Math.max(length, entry.getKey().getId() + 1);
+            }
+        }
+
+        double[] table = new double[length];
+        prices.forEach((material, price) -> {
+            if (price != 0) {
+                table[material.getId()] = price;
+            }
+        });
+        return table;
+    }
+
     private void set(String path, Object val) {
         config.set(path, val);
     }
@@ -445,19 +540,26 @@ public class Settings {
 
         // Load all configuration values into memory.
         int version = getInt("config-version", 0);
-        countFormat = new DecimalFormat(getString("messages.count-format", "#,###"));
-        currencyFormat = new DecimalFormat(getString("messages.currency-format", "$#,###.##"));
+        // Formats are not thread safe, so each thread is given its own copy.
+        String countPattern = getString("messages.count-format", "#,###");
+        String currencyPattern = getString("messages.currency-format", "$#,###.##");
+        countFormat = ThreadLocal.withInitial(() -> new DecimalFormat(countPattern));
+        currencyFormat = ThreadLocal.withInitial(() -> new DecimalFormat(currencyPattern));
         backButtonMessage = getButtonMessage("messages.button-back",
                 new ButtonMessage("&b[<]", "&7[<]", Collections.singletonList("&dCommand: &b/f top {page:back}")));
         nextButtonMessage = getButtonMessage("messages.button-next",
                 new ButtonMessage("&b[>]", "&7[>]", Collections.singletonList("&dCommand: &b/f top {page:next}")));
-        headerMessage = format(getString("messages.header",
-                "&6_______.[ &2Top Factions {button:back} &6{page:this}/{page:last} {button:next} &6]._______"));
+        headerMessage = MessageTemplate.compile(format(getString("messages.header",
+                "&6_______.[ &2Top Factions {button:back} &6{page:this}/{page:last} {button:next} &6]._______")));
         noEntriesMessage = format(getString("messages.no-entries", "&eNo entries to be displayed."));
-        bodyMessage = format(getString("messages.body.text", "&e{rank}. {relcolor}{faction} &b{worth:total}"));
-        bodyTooltip = format(getList("messages.body.tooltip", new ArrayList<>(WORTH_HOVER), String.class));
-        footerMessage = format(getString("messages.footer", ""));
+        bodyMessage = MessageTemplate.compile(format(getString("messages.body.text",
+                "&e{rank}. {relcolor}{faction} &b{worth:total}")));
+        bodyTooltip = MessageTemplate.compile(format(getList("messages.body.tooltip",
+                new ArrayList<>(WORTH_HOVER), String.class)));
+        footerMessage = MessageTemplate.compile(format(getString("messages.footer", "")));
         permissionMessage = format(getString("messages.permission", "&cYou do not have permission."));
+        renderFailedMessage = format(getString("messages.render-failed",
+                "&cThe faction rankings could not be displayed, please try again."));
         recalculationStartMessage = format(getString("messages.recalculation-start",
                 "&eAll faction totals are being resynchronized"));
         recalculationFinishMessage = format(getString("messages.recalculation-finish",
@@ -474,14 +576,25 @@ public class Settings {
         ignoredFactionIds = getList("settings.ignored-faction-ids",
                 Arrays.asList("none", "safezone", "warzone", "0", "-1", "-2"), String.class);
         disableChestEvents = getBoolean("settings.disable-chest-events", false);
+        chestReconcileMillis = Math.max(1000, getLong("settings.chest-reconcile-millis", 30_000));
         factionsPerPage = getInt("settings.factions-per-page", 9);
         signUpdateTicks = getInt("settings.sign-update-ticks", 1);
+        signUpdateLimit = Math.max(1, getInt("settings.sign-update-limit", 10));
         liquidUpdateTicks = getInt("settings.liquid-update-ticks", 100);
+        liquidPollsPerTick = Math.max(1, getInt("settings.liquid-polls-per-tick", 25));
         if (plugin.getEconomyHook() instanceof VaultEconomyHook) {
             ((VaultEconomyHook) plugin.getEconomyHook()).setLiquidUpdateTicks(liquidUpdateTicks);
+            ((VaultEconomyHook) plugin.getEconomyHook()).setLiquidPollsPerTick(liquidPollsPerTick);
         }
+        balanceRefreshMillis = Math.max(1000, getLong("settings.balance-refresh-millis", 300_000));
+        balanceRefreshPerTick = Math.max(1, getInt("settings.balance-refresh-per-tick", 20));
         chunkQueueSize = getInt("settings.chunk-queue-size", 200);
+        chunkScanThreads = Math.max(1, getInt("settings.chunk-scan-threads", 2));
         recalculateChunksPerTick = getInt("settings.recalculate-chunks-per-tick", 50);
+        recalculateMillisPerTick = Math.max(1, getLong("settings.recalculate-millis-per-tick", 10));
+        offlineRecalculation = getBoolean("settings.offline-recalculation", false);
+        sortMillisPerTick = Math.max(1, getLong("settings.sort-millis-per-tick", 5));
+        scanApplyMillisPerTick = Math.max(1, getLong("settings.scan-apply-millis-per-tick", 5));
         chunkRecalculateMillis = getLong("settings.chunk-recalculate-millis", 120_000);
 
         // Do not reload hikari configuration if already loaded.
@@ -524,6 +637,7 @@ public class Settings {
         );
         addDefaults("settings.block-prices", parseDefPrices(Material.class, prices));
         blockPrices = parsePriceMap(Material.class, "settings.block-prices", 0);
+        blockPriceTable = createPriceTable(blockPrices);
 
         // Update the configuration file if it is outdated.
         if (version < LATEST_VERSION) {
@@ -536,6 +650,8 @@ public class Settings {
             config.save(configFile);
             plugin.getLogger().info("Configuration file has been successfully updated.");
         }
+
+        revision++;
     }
 
     public String getDocumentation() {
@@ -32,6 +32,16 @@ public class RecalculateCommand implements CommandExecutor, PluginService {
             return true;
         }
 
+        if (args.length > 0 && args[args.length - 1].startsWith("s")) {
+            if (!plugin.getRecalculateTask().isRunning()) {
+                sender.sendMessage(ChatColor.RED + "No recalculation task was running.");
+                return true;
+            }
+
+            sender.sendMessage(ChatColor.YELLOW + "Recalculating: " + plugin.getRecalculateTask().getProgress());
+            return true;
+        }
+
         if (args.length > 0 && args[args.length - 1].startsWith("c")) {
             if (!plugin.getRecalculateTask().isRunning()) {
                 sender.sendMessage(ChatColor.RED + "No recalculation task was running.");
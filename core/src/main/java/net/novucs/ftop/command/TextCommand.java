@@ -3,24 +3,32 @@ package net.novucs.ftop.command;
 import mkremins.fanciful.FancyMessage;
 import net.novucs.ftop.FactionsTopPlugin;
 import net.novucs.ftop.PluginService;
+import net.novucs.ftop.Settings;
 import net.novucs.ftop.entity.ButtonMessage;
 import net.novucs.ftop.entity.FactionWorth;
+import net.novucs.ftop.entity.RankingSnapshot;
+import net.novucs.ftop.util.MessageTemplate;
 import org.apache.commons.lang.math.NumberUtils;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
 
-import java.util.HashMap;
-import java.util.List;
-import java.util.ListIterator;
-import java.util.Map;
+import java.text.NumberFormat;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
 
 import static net.novucs.ftop.util.StringUtils.*;
 
 public class TextCommand implements CommandExecutor, PluginService {
 
     private final FactionsTopPlugin plugin;
+    private final Map<String, CompletableFuture<List<FancyMessage>>> pageCache = new ConcurrentHashMap<>();
+    private long cacheVersion = -1;
+    private int cacheRevision = -1;
 
     public TextCommand(FactionsTopPlugin plugin) {
         this.plugin = plugin;
@@ -34,6 +42,7 @@ public class TextCommand implements CommandExecutor, PluginService {
     @Override
     public void terminate() {
         plugin.getServer().getPluginCommand("ftop").setExecutor(null);
+        pageCache.clear();
     }
 
     @Override
@@ -53,10 +62,92 @@ public class TextCommand implements CommandExecutor, PluginService {
 
     private void sendTop(CommandSender sender, int page) {
         // Do not attempt to send hook worth if page requested is beyond the limit.
+        RankingSnapshot snapshot = plugin.getWorthManager().getRankingSnapshot();
         int entries = plugin.getSettings().getFactionsPerPage();
-        List<FactionWorth> factions = plugin.getWorthManager().getOrderedFactions();
+        List<FactionWorth> factions = snapshot.getFactions();
         int maxPage = Math.max((int) Math.ceil((double) factions.size() / entries), 1);
-        page = Math.max(1, Math.min(maxPage, page));
+        int currentPage = Math.max(1, Math.min(maxPage, page));
+
+        // Relation colors depend on the factions plugin, so are resolved here
+        // on the main thread. Viewers sharing the same relations share pages.
+        int spacer = entries * (currentPage - 1);
+        int end = Math.min(factions.size(), spacer + entries);
+        char[] relations = new char[end - spacer];
+        for (int i = spacer; i < end; i++) {
+            relations[i - spacer] = getRelationColor(plugin, sender, factions.get(i).getFactionId()).getChar();
+        }
+
+        // Rendered pages are only valid for the ranking and settings they
+        // were rendered from.
+        int revision = plugin.getSettings().getRevision();
+        if (cacheVersion != snapshot.getVersion() || cacheRevision != revision) {
+            pageCache.clear();
+            cacheVersion = snapshot.getVersion();
+            cacheRevision = revision;
+        }
+
+        String key = snapshot.getVersion() + ":" + revision + ":" + currentPage + ":" + new String(relations);
+        CompletableFuture<List<FancyMessage>> rendered = pageCache.compute(key, (k, cached) -> {
+            if (cached != null && !cached.isCompletedExceptionally()) {
+                return cached;
+            }
+
+            // Format the page off the main thread, with the settings it
+            // needs captured here. Requests for the same page meanwhile wait
+            // on this render rather than starting their own.
+            PageSettings settings = new PageSettings(plugin.getSettings());
+            CompletableFuture<List<FancyMessage>> future = new CompletableFuture<>();
+            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+                try {
+                    future.complete(render(settings, snapshot, currentPage, maxPage, relations));
+                } catch (RuntimeException e) {
+                    future.completeExceptionally(e);
+                }
+            });
+            return future;
+        });
+
+        if (rendered.isDone() && !rendered.isCompletedExceptionally()) {
+            send(sender, rendered.join());
+            return;
+        }
+
+        // Send the page back on the main thread once rendered.
+        rendered.whenComplete((messages, error) -> {
+            if (error != null) {
+                pageCache.remove(key, rendered);
+                plugin.getLogger().log(Level.SEVERE, "Failed to render /ftop page " + currentPage, error);
+                plugin.getServer().getScheduler().runTask(plugin, () -> sendRenderFailed(sender));
+                return;
+            }
+
+            plugin.getServer().getScheduler().runTask(plugin, () -> send(sender, messages));
+        });
+    }
+
+    private void send(CommandSender sender, List<FancyMessage> messages) {
+        if (sender instanceof Player && !((Player) sender).isOnline()) {
+            return;
+        }
+
+        for (FancyMessage message : messages) {
+            message.send(sender);
+        }
+    }
+
+    private void sendRenderFailed(CommandSender sender) {
+        if (sender instanceof Player && !((Player) sender).isOnline()) {
+            return;
+        }
+
+        sender.sendMessage(plugin.getSettings().getRenderFailedMessage());
+    }
+
+    private List<FancyMessage> render(PageSettings settings, RankingSnapshot snapshot, int page, int maxPage,
+                                      char[] relations) {
+        List<FancyMessage> messages = new ArrayList<>();
+        int entries = settings.factionsPerPage;
+        List<FactionWorth> factions = snapshot.getFactions();
 
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("{page:back}", String.valueOf(page - 1));
@@ -64,8 +155,8 @@ public class TextCommand implements CommandExecutor, PluginService {
         placeholders.put("{page:next}", String.valueOf(page + 1));
         placeholders.put("{page:last}", String.valueOf(maxPage));
 
-        ButtonMessage back = plugin.getSettings().getBackButtonMessage();
-        ButtonMessage next = plugin.getSettings().getNextButtonMessage();
+        ButtonMessage back = settings.backButtonMessage;
+        ButtonMessage next = settings.nextButtonMessage;
 
         String backMsg = page == 1 ? back.getDisabled() : back.getEnabled();
         String backCmd = page == 1 ? null : "/ftop " + (page - 1);
@@ -75,43 +166,36 @@ public class TextCommand implements CommandExecutor, PluginService {
         String nextCmd = page == maxPage ? null : "/ftop " + (page + 1);
         List<String> nextTooltip = replace(next.getTooltip(), placeholders);
 
-        if (!plugin.getSettings().getHeaderMessage().isEmpty()) {
-            String headerString = replace(plugin.getSettings().getHeaderMessage(), placeholders);
-            FancyMessage header = build(headerString, backMsg, backCmd, backTooltip, nextMsg, nextCmd, nextTooltip);
-            header.send(sender);
+        if (!settings.headerMessage.isEmpty()) {
+            String headerString = settings.headerMessage.render(placeholders);
+            messages.add(build(headerString, backMsg, backCmd, backTooltip, nextMsg, nextCmd, nextTooltip));
         }
 
         if (factions.size() == 0) {
-            sender.sendMessage(plugin.getSettings().getNoEntriesMessage());
-            return;
+            messages.add(new FancyMessage(settings.noEntriesMessage));
+            return messages;
         }
 
-        int spacer = entries * --page;
-        ListIterator<FactionWorth> it = factions.listIterator(spacer);
-        for (int i = 0; i < entries; i++) {
-            if (!it.hasNext()) break;
-
-            FactionWorth worth = it.next();
+        int spacer = entries * (page - 1);
+        for (int i = 0; i < relations.length; i++) {
+            FactionWorth worth = factions.get(spacer + i);
+            int rank = spacer + i + 1;
+            String relcolor = "" + ChatColor.COLOR_CHAR + relations[i];
 
-            Map<String, String> worthPlaceholders = new HashMap<>(placeholders);
-            worthPlaceholders.put("{rank}", Integer.toString(spacer + i + 1));
-            worthPlaceholders.put("{relcolor}", "" + ChatColor.COLOR_CHAR + getRelationColor(plugin, sender, worth.getFactionId()).getChar());
-            worthPlaceholders.put("{faction}", worth.getName());
-            worthPlaceholders.put("{worth:total}", plugin.getSettings().getCurrencyFormat().format(worth.getTotalWorth()));
-            worthPlaceholders.put("{count:total:spawner}", plugin.getSettings().getCountFormat().format(worth.getTotalSpawnerCount()));
+            String bodyMessage = settings.bodyMessage.render(settings.currencyFormat, settings.countFormat, worth,
+                    rank, relcolor, placeholders);
+            List<String> tooltip = MessageTemplate.render(settings.bodyTooltip, settings.currencyFormat,
+                    settings.countFormat, worth, rank, relcolor, placeholders);
 
-            String bodyMessage = insertPlaceholders(plugin.getSettings(), worth, replace(plugin.getSettings().getBodyMessage(), worthPlaceholders));
-            List<String> tooltip = insertPlaceholders(plugin.getSettings(), worth, replace(plugin.getSettings().getBodyTooltip(), worthPlaceholders));
-
-            FancyMessage message = new FancyMessage(bodyMessage).tooltip(tooltip);
-            message.send(sender);
+            messages.add(new FancyMessage(bodyMessage).tooltip(tooltip));
         }
 
-        if (!plugin.getSettings().getFooterMessage().isEmpty()) {
-            String footerString = replace(plugin.getSettings().getFooterMessage(), placeholders);
-            FancyMessage footer = build(footerString, backMsg, backCmd, backTooltip, nextMsg, nextCmd, nextTooltip);
-            footer.send(sender);
+        if (!settings.footerMessage.isEmpty()) {
+            String footerString = settings.footerMessage.render(placeholders);
+            messages.add(build(footerString, backMsg, backCmd, backTooltip, nextMsg, nextCmd, nextTooltip));
         }
+
+        return messages;
     }
 
     private FancyMessage build(String message, String backText, String backCmd, List<String> backTooltip,
@@ -149,4 +233,35 @@ public class TextCommand implements CommandExecutor, PluginService {
 
         return fancyMessage;
     }
+
+    /**
+     * The settings used to render a page, captured on the main thread as
+     * settings may be reloaded while rendering. Number formats are copied as
+     * they are not thread safe.
+     */
+    private static class PageSettings {
+        private final int factionsPerPage;
+        private final NumberFormat currencyFormat;
+        private final NumberFormat countFormat;
+        private final ButtonMessage backButtonMessage;
+        private final ButtonMessage nextButtonMessage;
+        private final MessageTemplate headerMessage;
+        private final String noEntriesMessage;
+        private final MessageTemplate bodyMessage;
+        private final List<MessageTemplate> bodyTooltip;
+        private final MessageTemplate footerMessage;
+
+        private PageSettings(Settings settings) {
+            factionsPerPage = settings.getFactionsPerPage();
+            currencyFormat = (NumberFormat) settings.getCurrencyFormat().clone();
+            countFormat = (NumberFormat) settings.getCountFormat().clone();
+            backButtonMessage = settings.getBackButtonMessage();
+            nextButtonMessage = settings.getNextButtonMessage();
+            headerMessage = settings.getHeaderMessage();
+            noEntriesMessage = settings.getNoEntriesMessage();
+            bodyMessage = settings.getBodyMessage();
+            bodyTooltip = settings.getBodyTooltip();
+            footerMessage = settings.getFooterMessage();
+        }
+    }
 }
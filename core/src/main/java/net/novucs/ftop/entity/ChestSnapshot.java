@@ -0,0 +1,82 @@
+package net.novucs.ftop.entity;
+
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+
+/**
+ * The contents of an open chest, each slot packed into a single long holding
+ * its material, spawner type and amount.
+ */
+public class ChestSnapshot {
+
+    private static final Material[] MATERIALS = Material.values();
+    private static final EntityType[] ENTITY_TYPES = EntityType.values();
+
+    private final long[] slots;
+    private int viewers = 1;
+    private long nextReconcile;
+
+    public ChestSnapshot(int size, long nextReconcile) {
+        this.slots = new long[size];
+        this.nextReconcile = nextReconcile;
+    }
+
+    public long[] getSlots() {
+        return slots;
+    }
+
+    public int getViewers() {
+        return viewers;
+    }
+
+    public void setViewers(int viewers) {
+        this.viewers = viewers;
+    }
+
+    public long getNextReconcile() {
+        return nextReconcile;
+    }
+
+    public void setNextReconcile(long nextReconcile) {
+        this.nextReconcile = nextReconcile;
+    }
+
+    /**
+     * Packs the contents of a slot, empty slots are always packed as zero.
+     *
+     * @param material the item material.
+     * @param spawner  the spawner type, or null if not a spawner.
+     * @param amount   the item amount.
+     * @return the packed slot.
+     */
+    public static long pack(Material material, EntityType spawner, int amount) {
+        if (amount <= 0) {
+            return 0;
+        }
+
+        int spawnerId = spawner == null ? 0 : spawner.ordinal() + 1;
+        return (long) material.ordinal() << 32 | (long) spawnerId << 16 | amount & 0xFFFF;
+    }
+
+    public static Material getMaterial(long slot) {
+        return MATERIALS[(int) (slot >>> 32)];
+    }
+
+    public static EntityType getSpawner(long slot) {
+        int spawnerId = (int) (slot >>> 16 & 0xFFFF);
+        return spawnerId == 0 ? null : ENTITY_TYPES[spawnerId - 1];
+    }
+
+    public static int getAmount(long slot) {
+        return (int) (slot & 0xFFFF);
+    }
+
+    @Override
+    public String toString() {
+        return "ChestSnapshot{" +
+                "slots=" + slots.length +
+                ", viewers=" + viewers +
+                ", nextReconcile=" + nextReconcile +
+                '}';
+    }
+}
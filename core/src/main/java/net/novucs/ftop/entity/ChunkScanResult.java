@@ -0,0 +1,98 @@
+package net.novucs.ftop.entity;
+
+import org.bukkit.Material;
+
+import java.util.Arrays;
+import java.util.Map;
+
+public class ChunkScanResult {
+
+    private final ChunkPos pos;
+    private final int sections;
+    private final double[] worth;
+    private final Map<Material, Integer>[] materials;
+    private final int revision;
+    private final boolean offline;
+    private final long queued;
+
+    public ChunkScanResult(ChunkPos pos, int sections, double[] worth, Map<Material, Integer>[] materials,
+                           int revision, boolean offline, long queued) {
+        this.pos = pos;
+        this.sections = sections;
+        this.worth = worth;
+        this.materials = materials;
+        this.revision = revision;
+        this.offline = offline;
+        this.queued = queued;
+    }
+
+    public ChunkPos getPos() {
+        return pos;
+    }
+
+    /**
+     * Gets the sections which were scanned.
+     *
+     * @return the bitmask of scanned sections.
+     */
+    public int getSections() {
+        return sections;
+    }
+
+    /**
+     * Gets the block worth of each section, unscanned sections are zero.
+     *
+     * @return the worth of each section.
+     */
+    public double[] getWorth() {
+        return worth;
+    }
+
+    /**
+     * Gets the materials of each section, unscanned sections are null.
+     *
+     * @return the materials of each section.
+     */
+    public Map<Material, Integer>[] getMaterials() {
+        return materials;
+    }
+
+    public int getRevision() {
+        return revision;
+    }
+
+    public boolean isFull() {
+        return sections == ChunkWorth.ALL_SECTIONS;
+    }
+
+    /**
+     * Gets if this chunk was scanned from its region file while unloaded.
+     *
+     * @return true if scanned from a region file.
+     */
+    public boolean isOffline() {
+        return offline;
+    }
+
+    /**
+     * Gets when this chunk was queued to be scanned.
+     *
+     * @return the epoch millis the scan was queued.
+     */
+    public long getQueued() {
+        return queued;
+    }
+
+    @Override
+    public String toString() {
+        return "ChunkScanResult{" +
+                "pos=" + pos +
+                ", sections=" + Integer.toBinaryString(sections) +
+                ", worth=" + Arrays.toString(worth) +
+                ", materials=" + Arrays.toString(materials) +
+                ", revision=" + revision +
+                ", offline=" + offline +
+                ", queued=" + queued +
+                '}';
+    }
+}
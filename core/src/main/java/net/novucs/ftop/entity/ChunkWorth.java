@@ -1,6 +1,8 @@
 package net.novucs.ftop.entity;
 
 import net.novucs.ftop.WorthType;
+import net.novucs.ftop.util.EnumCounter;
+import net.novucs.ftop.util.IntSet;
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
 
@@ -9,23 +11,33 @@ import java.util.Map;
 
 public class ChunkWorth {
 
-    private final Map<WorthType, Double> worth;
-    private Map<Material, Integer> materials;
-    private Map<EntityType, Integer> spawners;
+    public static final int SECTIONS = 16;
+    public static final int ALL_SECTIONS = (1 << SECTIONS) - 1;
+    private static final WorthType[] WORTH_TYPES = WorthType.values();
+
+    private final double[] worth = new double[WORTH_TYPES.length];
+    private final EnumCounter<Material> materials = new EnumCounter<>(Material.class);
+    private final EnumCounter<EntityType> spawners = new EnumCounter<>(EntityType.class);
+    private int worthTypes;
     private long nextRecalculation;
+    private long lastScan;
+    private double[] sectionWorth;
+    private EnumCounter<Material>[] sectionMaterials;
+    private int sectionRevision;
+    private int dirtySections;
+    private IntSet tiles;
 
     public ChunkWorth() {
-        this(new EnumMap<>(WorthType.class), new EnumMap<>(Material.class), new EnumMap<>(EntityType.class));
     }
 
     public ChunkWorth(Map<WorthType, Double> worth, Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
-        this.worth = worth;
-        this.materials = materials;
-        this.spawners = spawners;
+        worth.forEach(this::setWorth);
+        this.materials.addAll(materials);
+        this.spawners.addAll(spawners);
     }
 
     public double getWorth(WorthType worthType) {
-        return worth.getOrDefault(worthType, 0d);
+        return worth[worthType.ordinal()];
     }
 
     public void setWorth(WorthType worthType, double worth) {
@@ -34,41 +46,63 @@ public class ChunkWorth {
         }
 
         worth = Math.max(0, worth);
-        this.worth.put(worthType, worth);
+        this.worth[worthType.ordinal()] = worth;
+        worthTypes |= 1 << worthType.ordinal();
     }
 
+    /**
+     * Gets a copy of every worth type set on this chunk.
+     *
+     * @return the worth of each type.
+     */
     public Map<WorthType, Double> getWorth() {
-        return worth;
+        Map<WorthType, Double> target = new EnumMap<>(WorthType.class);
+        for (WorthType worthType : WORTH_TYPES) {
+            if ((worthTypes & 1 << worthType.ordinal()) != 0) {
+                target.put(worthType, worth[worthType.ordinal()]);
+            }
+        }
+        return target;
+    }
+
+    public int getMaterialCount(Material material) {
+        return materials.get(material);
+    }
+
+    public int getSpawnerCount(EntityType spawner) {
+        return spawners.get(spawner);
     }
 
     public Map<Material, Integer> getMaterials() {
-        return materials;
+        return materials.toMap();
     }
 
     public Map<EntityType, Integer> getSpawners() {
+        return spawners.toMap();
+    }
+
+    public EnumCounter<Material> getMaterialCounter() {
+        return materials;
+    }
+
+    public EnumCounter<EntityType> getSpawnerCounter() {
         return spawners;
     }
 
     public void setMaterials(Map<Material, Integer> materials) {
-        this.materials = materials;
+        this.materials.setAll(materials);
     }
 
     public void setSpawners(Map<EntityType, Integer> spawners) {
-        this.spawners = spawners;
+        this.spawners.setAll(spawners);
     }
 
     public void addMaterials(Map<Material, Integer> materials) {
-        for (Map.Entry<Material, Integer> material : materials.entrySet()) {
-            int amount = Math.max(0, this.materials.getOrDefault(material.getKey(), 0) + material.getValue());
-            this.materials.put(material.getKey(), amount);
-        }
+        this.materials.addAll(materials);
     }
 
     public void addSpawners(Map<EntityType, Integer> spawners) {
-        for (Map.Entry<EntityType, Integer> spawner : spawners.entrySet()) {
-            int amount = Math.max(0, this.spawners.getOrDefault(spawner.getKey(), 0) + spawner.getValue());
-            this.spawners.put(spawner.getKey(), amount);
-        }
+        this.spawners.addAll(spawners);
     }
 
     public void addWorth(WorthType worthType, double worth) {
@@ -83,13 +117,173 @@ public class ChunkWorth {
         this.nextRecalculation = nextRecalculation;
     }
 
+    /**
+     * Gets when the blocks in this chunk were last scanned.
+     *
+     * @return the epoch millis of the last scan, or 0 if never scanned.
+     */
+    public long getLastScan() {
+        return lastScan;
+    }
+
+    public void setLastScan(long lastScan) {
+        this.lastScan = lastScan;
+    }
+
+    /**
+     * Marks 16 block tall sections as changed since they were last scanned.
+     *
+     * @param sections the bitmask of sections, see {@link #getSection(int)}.
+     */
+    public void markDirty(int sections) {
+        dirtySections |= sections & ALL_SECTIONS;
+    }
+
+    /**
+     * Gets the section bit holding a block height.
+     *
+     * @param y the block y coordinate.
+     * @return the section bit, or 0 if outside the world.
+     */
+    public static int getSection(int y) {
+        return y >= 0 && y < SECTIONS << 4 ? 1 << (y >> 4) : 0;
+    }
+
+    /**
+     * Takes the sections which must be rescanned, clearing them. Every
+     * section must be rescanned until the chunk has been scanned in full
+     * using the current settings.
+     *
+     * @param revision the current settings revision.
+     * @return the bitmask of sections to rescan.
+     */
+    public int takeDirtySections(int revision) {
+        int sections = sectionWorth == null || sectionRevision != revision ? ALL_SECTIONS : dirtySections;
+        dirtySections = 0;
+        return sections;
+    }
+
+    /**
+     * Replaces the scanned block worth and materials of some sections.
+     *
+     * @param sections  the bitmask of scanned sections.
+     * @param worth     the block worth of each section.
+     * @param materials the materials of each section.
+     * @param revision  the settings revision used to scan.
+     */
+    @SuppressWarnings("unchecked")
+    public void setSections(int sections, double[] worth, Map<Material, Integer>[] materials, int revision) {
+        // Only a full scan may introduce new prices, partial scans against
+        // stale sections are discarded until the next full scan.
+        if (sections != ALL_SECTIONS && (sectionWorth == null || sectionRevision != revision)) {
+            sectionWorth = null;
+            sectionMaterials = null;
+            return;
+        }
+
+        if (sectionWorth == null) {
+            sectionWorth = new double[SECTIONS];
+            sectionMaterials = new EnumCounter[SECTIONS];
+        }
+
+        sectionRevision = revision;
+        for (int section = 0; section < SECTIONS; section++) {
+            if ((sections & 1 << section) == 0) {
+                continue;
+            }
+
+            // Most sections hold nothing of worth, so share no storage.
+            sectionWorth[section] = worth[section];
+            sectionMaterials[section] = materials[section].isEmpty() ? null :
+                    new EnumCounter<>(Material.class, materials[section]);
+        }
+    }
+
+    /**
+     * Checks if the block worth of every section is known.
+     *
+     * @return true if sections have been scanned.
+     */
+    public boolean hasSections() {
+        return sectionWorth != null;
+    }
+
+    /**
+     * Gets the block worth of all sections combined.
+     *
+     * @return the total section worth.
+     */
+    public double getSectionWorth() {
+        double total = 0;
+        for (double worth : sectionWorth) {
+            total += worth;
+        }
+        return total;
+    }
+
+    /**
+     * Gets the materials of all sections combined.
+     *
+     * @return the total section materials.
+     */
+    public Map<Material, Integer> getSectionMaterials() {
+        EnumCounter<Material> total = new EnumCounter<>(Material.class);
+        for (EnumCounter<Material> materials : sectionMaterials) {
+            if (materials != null) {
+                total.addAll(materials);
+            }
+        }
+        return total.toMap();
+    }
+
+    /**
+     * Gets the positions of every spawner and chest in this chunk, packed by
+     * {@link #packTile(int, int, int)}.
+     *
+     * @return the tile positions, or null if not yet indexed.
+     */
+    public IntSet getTiles() {
+        return tiles;
+    }
+
+    public void setTiles(IntSet tiles) {
+        this.tiles = tiles;
+    }
+
+    /**
+     * Packs a block position into its position within a chunk.
+     *
+     * @param x the block x coordinate.
+     * @param y the block y coordinate.
+     * @param z the block z coordinate.
+     * @return the packed position.
+     */
+    public static int packTile(int x, int y, int z) {
+        return (y & 0xFF) << 8 | (z & 15) << 4 | x & 15;
+    }
+
+    public static int unpackTileX(int tile) {
+        return tile & 15;
+    }
+
+    public static int unpackTileY(int tile) {
+        return tile >> 8;
+    }
+
+    public static int unpackTileZ(int tile) {
+        return tile >> 4 & 15;
+    }
+
     @Override
     public String toString() {
         return "ChunkWorth{" +
-                "worth=" + worth +
+                "worth=" + getWorth() +
                 ", materials=" + materials +
                 ", spawners=" + spawners +
                 ", nextRecalculation=" + nextRecalculation +
+                ", lastScan=" + lastScan +
+                ", dirtySections=" + Integer.toBinaryString(dirtySections) +
+                ", tiles=" + tiles +
                 '}';
     }
 }
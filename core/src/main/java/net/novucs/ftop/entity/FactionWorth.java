@@ -1,6 +1,7 @@
 package net.novucs.ftop.entity;
 
 import net.novucs.ftop.WorthType;
+import net.novucs.ftop.util.EnumCounter;
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
 
@@ -10,10 +11,12 @@ import java.util.Map;
 
 public class FactionWorth implements Comparable<FactionWorth> {
 
+    private static final WorthType[] WORTH_TYPES = WorthType.values();
+
     private final String factionId;
-    private final Map<WorthType, Double> worth = new EnumMap<>(WorthType.class);
-    private final Map<Material, Integer> materials = new EnumMap<>(Material.class);
-    private final Map<EntityType, Integer> spawners = new EnumMap<>(EntityType.class);
+    private final double[] worth;
+    private final EnumCounter<Material> materials;
+    private final EnumCounter<EntityType> spawners;
     private String name;
     private double totalWorth = 0;
     private int totalSpawners = 0;
@@ -21,6 +24,24 @@ public class FactionWorth implements Comparable<FactionWorth> {
     public FactionWorth(String factionId, String name) {
         this.factionId = factionId;
         this.name = name;
+        this.worth = new double[WORTH_TYPES.length];
+        this.materials = new EnumCounter<>(Material.class);
+        this.spawners = new EnumCounter<>(EntityType.class);
+    }
+
+    /**
+     * Creates a deep copy of a faction worth profile.
+     *
+     * @param other the profile to copy.
+     */
+    public FactionWorth(FactionWorth other) {
+        this.factionId = other.factionId;
+        this.name = other.name;
+        this.worth = other.worth.clone();
+        this.materials = new EnumCounter<>(other.materials);
+        this.spawners = new EnumCounter<>(other.spawners);
+        this.totalWorth = other.totalWorth;
+        this.totalSpawners = other.totalSpawners;
     }
 
     public String getFactionId() {
@@ -28,19 +49,44 @@ public class FactionWorth implements Comparable<FactionWorth> {
     }
 
     public double getWorth(WorthType worthType) {
-        return worth.getOrDefault(worthType, 0d);
+        return worthType == null ? 0 : worth[worthType.ordinal()];
     }
 
+    /**
+     * Gets a copy of the worth of every type.
+     *
+     * @return the worth of each type.
+     */
     public Map<WorthType, Double> getWorth() {
-        return worth;
+        Map<WorthType, Double> target = new EnumMap<>(WorthType.class);
+        for (WorthType worthType : WORTH_TYPES) {
+            target.put(worthType, worth[worthType.ordinal()]);
+        }
+        return target;
+    }
+
+    public int getMaterialCount(Material material) {
+        return material == null ? 0 : materials.get(material);
+    }
+
+    public int getSpawnerCount(EntityType spawner) {
+        return spawner == null ? 0 : spawners.get(spawner);
     }
 
     public Map<Material, Integer> getMaterials() {
-        return Collections.unmodifiableMap(materials);
+        return Collections.unmodifiableMap(materials.toMap());
     }
 
     public Map<EntityType, Integer> getSpawners() {
-        return Collections.unmodifiableMap(spawners);
+        return Collections.unmodifiableMap(spawners.toMap());
+    }
+
+    public EnumCounter<Material> getMaterialCounter() {
+        return materials;
+    }
+
+    public EnumCounter<EntityType> getSpawnerCounter() {
+        return spawners;
     }
 
     public int getTotalSpawnerCount() {
@@ -57,8 +103,8 @@ public class FactionWorth implements Comparable<FactionWorth> {
 
     private void setWorth(WorthType worthType, double worth) {
         worth = Math.max(0, worth);
-        Double prev = this.worth.put(worthType, worth);
-        totalWorth += worth - (prev == null ? 0 : prev);
+        totalWorth += worth - this.worth[worthType.ordinal()];
+        this.worth[worthType.ordinal()] = worth;
     }
 
     public void addWorth(WorthType worthType, double worth) {
@@ -66,49 +112,50 @@ public class FactionWorth implements Comparable<FactionWorth> {
     }
 
     public void addMaterials(Map<Material, Integer> materials) {
-        add(materials, this.materials);
+        this.materials.addAll(materials);
     }
 
     public void removeMaterials(Map<Material, Integer> materials) {
-        remove(materials, this.materials);
+        this.materials.removeAll(materials);
+    }
+
+    public void addMaterials(EnumCounter<Material> materials) {
+        this.materials.addAll(materials);
+    }
+
+    public void removeMaterials(EnumCounter<Material> materials) {
+        this.materials.removeAll(materials);
     }
 
     public void addSpawners(Map<EntityType, Integer> spawners) {
         spawners.values().forEach(count -> totalSpawners += count);
-        add(spawners, this.spawners);
+        this.spawners.addAll(spawners);
     }
 
     public void removeSpawners(Map<EntityType, Integer> spawners) {
         spawners.values().forEach(count -> totalSpawners -= count);
-        remove(spawners, this.spawners);
-    }
-
-    private void addWorth(Map<WorthType, Double> worth) {
-        for (Map.Entry<WorthType, Double> entry : worth.entrySet()) {
-            double amount = this.worth.getOrDefault(entry.getKey(), 0d);
-            totalWorth += entry.getValue();
-            this.worth.put(entry.getKey(), amount + entry.getValue());
-        }
+        this.spawners.removeAll(spawners);
     }
 
-    private <T> void add(Map<T, Integer> modifier, Map<T, Integer> modified) {
-        for (Map.Entry<T, Integer> entry : modifier.entrySet()) {
-            int amount = Math.max(0, modified.getOrDefault(entry.getKey(), 0) + entry.getValue());
-            modified.put(entry.getKey(), amount);
-        }
+    public void addSpawners(EnumCounter<EntityType> spawners) {
+        spawners.forEach((spawner, count) -> totalSpawners += count);
+        this.spawners.addAll(spawners);
     }
 
-    private <T> void remove(Map<T, Integer> modifier, Map<T, Integer> modified) {
-        for (Map.Entry<T, Integer> entry : modifier.entrySet()) {
-            int amount = Math.max(0, modified.getOrDefault(entry.getKey(), 0) - entry.getValue());
-            modified.put(entry.getKey(), amount);
-        }
+    public void removeSpawners(EnumCounter<EntityType> spawners) {
+        spawners.forEach((spawner, count) -> totalSpawners -= count);
+        this.spawners.removeAll(spawners);
     }
 
     public void addAll(ChunkWorth chunkWorth) {
-        addMaterials(chunkWorth.getMaterials());
-        addSpawners(chunkWorth.getSpawners());
-        addWorth(chunkWorth.getWorth());
+        addMaterials(chunkWorth.getMaterialCounter());
+        addSpawners(chunkWorth.getSpawnerCounter());
+
+        for (WorthType worthType : WORTH_TYPES) {
+            double amount = chunkWorth.getWorth(worthType);
+            worth[worthType.ordinal()] += amount;
+            totalWorth += amount;
+        }
     }
 
     public void setName(String name) {
@@ -124,7 +171,7 @@ public class FactionWorth implements Comparable<FactionWorth> {
     public String toString() {
         return "FactionWorth{" +
                 "factionId='" + factionId + '\'' +
-                ", worth=" + worth +
+                ", worth=" + getWorth() +
                 ", materials=" + materials +
                 ", spawners=" + spawners +
                 ", name='" + name + '\'' +
@@ -0,0 +1,68 @@
+package net.novucs.ftop.entity;
+
+import java.util.*;
+
+/**
+ * An immutable, versioned copy of the faction ranking which may be read from
+ * any thread. The faction profiles held are copies and must not be modified.
+ */
+public class RankingSnapshot {
+
+    public static final RankingSnapshot EMPTY = new RankingSnapshot(0, Collections.emptyList());
+
+    private final long version;
+    private final List<FactionWorth> factions;
+    private final Map<String, Integer> ranks;
+
+    /**
+     * Creates a new ranking snapshot, taking ownership of the factions list
+     * rather than copying it.
+     *
+     * @param version  the snapshot version.
+     * @param factions the ordered factions, which must not be modified after.
+     */
+    public RankingSnapshot(long version, List<FactionWorth> factions) {
+        this.version = version;
+        this.factions = Collections.unmodifiableList(factions);
+        this.ranks = new HashMap<>(factions.size() * 4 / 3 + 1);
+
+        for (int rank = 0; rank < factions.size(); rank++) {
+            ranks.put(factions.get(rank).getFactionId(), rank);
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets all ranked factions, highest worth first.
+     *
+     * @return the ordered factions.
+     */
+    public List<FactionWorth> getFactions() {
+        return factions;
+    }
+
+    public int size() {
+        return factions.size();
+    }
+
+    /**
+     * Gets the zero based rank of a faction.
+     *
+     * @param factionId the faction ID.
+     * @return the rank, or -1 if the faction is not ranked.
+     */
+    public int getRank(String factionId) {
+        return ranks.getOrDefault(factionId, -1);
+    }
+
+    @Override
+    public String toString() {
+        return "RankingSnapshot{" +
+                "version=" + version +
+                ", factions=" + factions.size() +
+                '}';
+    }
+}
@@ -7,6 +7,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.ListIterator;
 import java.util.Map;
@@ -21,6 +22,7 @@ public class GuiContext {
     private final ListIterator<FactionWorth> worthIterator;
     private final Map<String, String> placeholders;
     private final List<GuiElement> slots = new ArrayList<>();
+    private final Map<Integer, String> relationalSlots = new HashMap<>();
     private int currentRank;
     private int slot;
 
@@ -67,6 +69,10 @@ public class GuiContext {
         return slots;
     }
 
+    public Map<Integer, String> getRelationalSlots() {
+        return relationalSlots;
+    }
+
     public boolean hasNextPage() {
         return thisPage < maxPage;
     }
@@ -0,0 +1,61 @@
+package net.novucs.ftop.gui;
+
+import net.novucs.ftop.gui.element.GuiElement;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A rendered GUI page shared between every viewer, only the relation colors
+ * are applied separately for each viewer.
+ */
+public class GuiPage {
+
+    /**
+     * Rendered in place of relation colors, then replaced for each viewer.
+     */
+    public static final String RELCOLOR_MARKER = "\uE000";
+
+    private final String title;
+    private final ItemStack[] contents;
+    private final List<GuiElement> slots;
+    private final Map<Integer, String> relationalSlots;
+
+    public GuiPage(String title, ItemStack[] contents, List<GuiElement> slots, Map<Integer, String> relationalSlots) {
+        this.title = title;
+        this.contents = contents;
+        this.slots = slots;
+        this.relationalSlots = relationalSlots;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public ItemStack[] getContents() {
+        return contents;
+    }
+
+    public List<GuiElement> getSlots() {
+        return slots;
+    }
+
+    /**
+     * Gets the slots containing relation colors, mapped to their faction ID.
+     *
+     * @return the relational slots.
+     */
+    public Map<Integer, String> getRelationalSlots() {
+        return relationalSlots;
+    }
+
+    @Override
+    public String toString() {
+        return "GuiPage{" +
+                "title='" + title + '\'' +
+                ", slots=" + slots.size() +
+                ", relationalSlots=" + relationalSlots +
+                '}';
+    }
+}
@@ -4,35 +4,38 @@ import net.novucs.ftop.FactionsTopPlugin;
 import net.novucs.ftop.Settings;
 import net.novucs.ftop.entity.FactionWorth;
 import net.novucs.ftop.gui.GuiContext;
-import org.bukkit.ChatColor;
+import net.novucs.ftop.gui.GuiPage;
+import net.novucs.ftop.util.MessageTemplate;
 import org.bukkit.Material;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.SkullMeta;
 
-import java.text.DecimalFormat;
 import java.util.*;
 
-import static net.novucs.ftop.util.StringUtils.*;
-
 public class GuiFactionList implements GuiElement {
 
     private final int factionCount;
     private final boolean fillEmpty;
     private final String text;
     private final List<String> lore;
+    private final MessageTemplate textTemplate;
+    private final List<MessageTemplate> loreTemplate;
+    private final boolean relational;
 
     private GuiFactionList(int factionCount, boolean fillEmpty, String text, List<String> lore) {
         this.factionCount = factionCount;
         this.fillEmpty = fillEmpty;
         this.text = text;
         this.lore = lore;
+        this.textTemplate = MessageTemplate.compile(text);
+        this.loreTemplate = MessageTemplate.compile(lore);
+        this.relational = textTemplate.hasRelationColor() ||
+                loreTemplate.stream().anyMatch(MessageTemplate::hasRelationColor);
     }
 
     @Override
     public void render(GuiContext context) {
         FactionsTopPlugin plugin = context.getPlugin();
-        DecimalFormat currencyFormat = plugin.getSettings().getCurrencyFormat();
-        DecimalFormat countFormat = plugin.getSettings().getCountFormat();
 
         int counter = 0;
         while (counter++ < factionCount) {
@@ -51,17 +54,19 @@ public class GuiFactionList implements GuiElement {
             }
 
             FactionWorth worth = context.getWorthIterator().next();
-            Map<String, String> placeholders = new HashMap<>(context.getPlaceholders());
-            placeholders.put("{rank}", Integer.toString(context.getAndIncrementRank()));
-            placeholders.put("{relcolor}", "" + ChatColor.COLOR_CHAR +
-                    getRelationColor(plugin, context.getPlayer(), worth.getFactionId()).getChar());
-            placeholders.put("{faction}", worth.getName());
-            placeholders.put("{worth:total}", currencyFormat.format(worth.getTotalWorth()));
-            placeholders.put("{count:total:spawner}", countFormat.format(worth.getTotalSpawnerCount()));
+            int rank = context.getAndIncrementRank();
+            int slot = context.getAndIncrementSlot();
+
+            // Pages are shared between viewers, so relation colors are
+            // marked here and applied for each viewer when opened.
+            if (relational) {
+                context.getRelationalSlots().put(slot, worth.getFactionId());
+            }
 
             String owner = plugin.getFactionsHook().getOwnerName(worth.getFactionId());
-            ItemStack item = getItem(worth, placeholders, plugin.getSettings(), owner);
-            context.getInventory().setItem(context.getAndIncrementSlot(), item);
+            ItemStack item = getItem(worth, rank, GuiPage.RELCOLOR_MARKER, context.getPlaceholders(),
+                    plugin.getSettings(), owner);
+            context.getInventory().setItem(slot, item);
         }
     }
 
@@ -73,9 +78,10 @@ public class GuiFactionList implements GuiElement {
         return factionCount;
     }
 
-    private ItemStack getItem(FactionWorth worth, Map<String, String> placeholders, Settings settings, String owner) {
-        String text = insertPlaceholders(settings, worth, replace(this.text, placeholders));
-        List<String> lore = insertPlaceholders(settings, worth, replace(this.lore, placeholders));
+    private ItemStack getItem(FactionWorth worth, int rank, String relcolor, Map<String, String> placeholders,
+                              Settings settings, String owner) {
+        String text = textTemplate.render(settings, worth, rank, relcolor, placeholders);
+        List<String> lore = MessageTemplate.render(loreTemplate, settings, worth, rank, relcolor, placeholders);
 
         ItemStack item = new ItemStack(Material.SKULL_ITEM, 1, (short) 3);
 
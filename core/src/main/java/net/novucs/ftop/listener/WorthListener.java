@@ -6,10 +6,16 @@ import net.novucs.ftop.PluginService;
 import net.novucs.ftop.RecalculateReason;
 import net.novucs.ftop.WorthType;
 import net.novucs.ftop.entity.BlockPos;
+import net.novucs.ftop.entity.ChestSnapshot;
 import net.novucs.ftop.entity.ChestWorth;
+import net.novucs.ftop.entity.ChunkPos;
+import net.novucs.ftop.entity.ChunkWorth;
 import net.novucs.ftop.hook.event.*;
+import net.novucs.ftop.util.LongObjectMap;
+import org.bukkit.Chunk;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Chest;
 import org.bukkit.block.CreatureSpawner;
 import org.bukkit.block.DoubleChest;
@@ -29,15 +35,12 @@ import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
 
 public class WorthListener extends BukkitRunnable implements Listener, PluginService {
 
     private final FactionsTopPlugin plugin;
-    private final Map<BlockPos, ChestWorth> chests = new HashMap<>();
+    private final Map<BlockPos, ChestSnapshot> chests = new HashMap<>();
     private final Set<String> recentDisbands = new HashSet<>();
 
     public WorthListener(FactionsTopPlugin plugin) {
@@ -59,6 +62,28 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
     @Override
     public void run() {
         recentDisbands.clear();
+
+        // Apply changes made to chests held open for a long time, rather than
+        // holding back their worth until closed.
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<BlockPos, ChestSnapshot>> it = chests.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<BlockPos, ChestSnapshot> entry = it.next();
+            ChestSnapshot snapshot = entry.getValue();
+            if (snapshot.getNextReconcile() > now) {
+                continue;
+            }
+
+            Block block = entry.getKey().getBlock(plugin.getServer());
+            BlockState state = block == null ? null : block.getState();
+            if (!(state instanceof Chest)) {
+                it.remove();
+                continue;
+            }
+
+            snapshot.setNextReconcile(now + plugin.getSettings().getChestReconcileMillis());
+            reconcile((Chest) state, snapshot);
+        }
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -73,7 +98,20 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void updateWorth(EntityExplodeEvent event) {
-        event.blockList().forEach(block -> updateWorth(block, RecalculateReason.EXPLODE, true));
+        // Group the destroyed blocks by chunk, so each chunk is resolved and
+        // updated only once per explosion.
+        LongObjectMap<List<Block>> chunks = new LongObjectMap<>();
+        for (Block block : event.blockList()) {
+            long key = ChunkPos.pack(block.getX() >> 4, block.getZ() >> 4);
+            List<Block> blocks = chunks.get(key);
+            if (blocks == null) {
+                blocks = new ArrayList<>();
+                chunks.put(key, blocks);
+            }
+            blocks.add(block);
+        }
+
+        chunks.forEach((blocks, key) -> updateWorth(blocks));
     }
 
     private void updateWorth(Block block, RecalculateReason reason, boolean negate) {
@@ -90,11 +128,12 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
         Map<Material, Integer> materials = new HashMap<>();
         Map<EntityType, Integer> spawners = new HashMap<>();
 
-        plugin.getWorthManager().add(block.getChunk(), reason, worthType, price,
+        plugin.getWorthManager().add(block, reason, worthType, price,
                 ImmutableMap.of(block.getType(), multiplier), spawners);
 
         switch (block.getType()) {
             case MOB_SPAWNER:
+                plugin.getWorthManager().updateTile(block, negate);
                 worthType = WorthType.SPAWNER;
                 EntityType spawnType = ((CreatureSpawner) block.getState()).getSpawnedType();
                 price = multiplier * plugin.getSettings().getSpawnerPrice(spawnType);
@@ -102,13 +141,13 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
                 break;
             case CHEST:
             case TRAPPED_CHEST:
+                plugin.getWorthManager().updateTile(block, negate);
                 if (plugin.getSettings().isDisableChestEvents()) {
                     return;
                 }
 
                 worthType = WorthType.CHEST;
-                Chest chest = (Chest) block.getState();
-                ChestWorth chestWorth = negate ? getWorthNegative(chest.getBlockInventory()) : getWorth(chest.getBlockInventory());
+                ChestWorth chestWorth = getWorth((Chest) block.getState(), negate);
                 price = chestWorth.getTotalWorth();
                 materials.putAll(chestWorth.getMaterials());
                 spawners.putAll(chestWorth.getSpawners());
@@ -118,7 +157,93 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
         }
 
         // Add block price to the count.
-        plugin.getWorthManager().add(block.getChunk(), reason, worthType, price, materials, spawners);
+        plugin.getWorthManager().add(block, reason, worthType, price, materials, spawners);
+    }
+
+    /**
+     * Removes the worth of blocks destroyed within a single chunk, adding
+     * their combined worth once for each worth type.
+     *
+     * @param blocks the destroyed blocks.
+     */
+    private void updateWorth(List<Block> blocks) {
+        // Do nothing if this area should not be calculated.
+        Block first = blocks.get(0);
+        String factionId = plugin.getFactionsHook().getFactionAt(first);
+        if (plugin.getSettings().getIgnoredFactionIds().contains(factionId)) {
+            return;
+        }
+
+        int sections = 0;
+        double blockWorth = 0;
+        double spawnerWorth = 0;
+        double chestWorth = 0;
+        Map<Material, Integer> blockMaterials = new HashMap<>();
+        Map<EntityType, Integer> spawners = new HashMap<>();
+        Map<Material, Integer> chestMaterials = new HashMap<>();
+        Map<EntityType, Integer> chestSpawners = new HashMap<>();
+
+        for (Block block : blocks) {
+            Material type = block.getType();
+            sections |= ChunkWorth.getSection(block.getY());
+
+            // Only priced blocks are counted, as with single block changes.
+            double price = plugin.getSettings().getBlockPrice(type);
+            if (price != 0) {
+                blockWorth -= price;
+                blockMaterials.merge(type, -1, Integer::sum);
+            }
+
+            switch (type) {
+                case MOB_SPAWNER:
+                    plugin.getWorthManager().updateTile(block, true);
+                    EntityType spawnType = ((CreatureSpawner) block.getState()).getSpawnedType();
+                    price = plugin.getSettings().getSpawnerPrice(spawnType);
+                    if (price != 0) {
+                        spawnerWorth -= price;
+                        spawners.merge(spawnType, -1, Integer::sum);
+                    }
+                    break;
+                case CHEST:
+                case TRAPPED_CHEST:
+                    plugin.getWorthManager().updateTile(block, true);
+                    if (plugin.getSettings().isDisableChestEvents()) {
+                        break;
+                    }
+
+                    ChestWorth worth = getWorth((Chest) block.getState(), true);
+                    chestWorth += worth.getTotalWorth();
+                    worth.getMaterials().forEach((material, count) -> chestMaterials.merge(material, count, Integer::sum));
+                    worth.getSpawners().forEach((spawner, count) -> chestSpawners.merge(spawner, count, Integer::sum));
+                    break;
+            }
+        }
+
+        Chunk chunk = first.getChunk();
+        plugin.getWorthManager().add(chunk, sections, RecalculateReason.EXPLODE, WorthType.BLOCK, blockWorth,
+                blockMaterials, Collections.emptyMap());
+        plugin.getWorthManager().add(chunk, sections, RecalculateReason.EXPLODE, WorthType.SPAWNER, spawnerWorth,
+                Collections.emptyMap(), spawners);
+        plugin.getWorthManager().add(chunk, sections, RecalculateReason.EXPLODE, WorthType.CHEST, chestWorth,
+                chestMaterials, chestSpawners);
+    }
+
+    /**
+     * Gets the worth of a placed or removed chest, first catching up on
+     * changes made while open. The contents are then accounted for here
+     * rather than once closed.
+     *
+     * @param chest  the chest.
+     * @param negate true if the chest was removed.
+     * @return the chest worth.
+     */
+    private ChestWorth getWorth(Chest chest, boolean negate) {
+        ChestSnapshot snapshot = chests.remove(BlockPos.of(chest.getBlock()));
+        if (snapshot != null) {
+            reconcile(chest, snapshot);
+        }
+
+        return negate ? getWorthNegative(chest.getBlockInventory()) : getWorth(chest.getBlockInventory());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -144,7 +269,90 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
     }
 
     private void checkWorth(Chest chest) {
-        chests.put(BlockPos.of(chest.getBlock()), getWorth(chest.getBlockInventory()));
+        // Chests viewed by many players share a snapshot, reconciled as each
+        // viewer closes the chest.
+        BlockPos pos = BlockPos.of(chest.getBlock());
+        ChestSnapshot snapshot = chests.get(pos);
+        if (snapshot != null) {
+            snapshot.setViewers(snapshot.getViewers() + 1);
+            return;
+        }
+
+        ItemStack[] contents = chest.getBlockInventory().getContents();
+        long nextReconcile = System.currentTimeMillis() + plugin.getSettings().getChestReconcileMillis();
+        snapshot = new ChestSnapshot(contents.length, nextReconcile);
+        long[] slots = snapshot.getSlots();
+        for (int i = 0; i < contents.length; i++) {
+            slots[i] = pack(contents[i]);
+        }
+        chests.put(pos, snapshot);
+    }
+
+    private long pack(ItemStack item) {
+        if (item == null) {
+            return 0;
+        }
+
+        EntityType spawnerType = null;
+        if (item.getType() == Material.MOB_SPAWNER) {
+            spawnerType = plugin.getCraftbukkitHook().getSpawnerType(item);
+        }
+        return ChestSnapshot.pack(item.getType(), spawnerType, item.getAmount());
+    }
+
+    /**
+     * Adds the worth changed since a chest was last snapshot, then updates
+     * the snapshot. Nothing is allocated unless the contents have changed.
+     *
+     * @param chest    the chest.
+     * @param snapshot the chest snapshot.
+     */
+    private void reconcile(Chest chest, ChestSnapshot snapshot) {
+        ItemStack[] contents = chest.getBlockInventory().getContents();
+        long[] slots = snapshot.getSlots();
+        double worth = 0;
+        Map<Material, Integer> materials = null;
+        Map<EntityType, Integer> spawners = null;
+
+        for (int i = 0; i < slots.length && i < contents.length; i++) {
+            long slot = pack(contents[i]);
+            long previous = slots[i];
+            if (slot == previous) {
+                continue;
+            }
+
+            if (materials == null) {
+                materials = new EnumMap<>(Material.class);
+                spawners = new EnumMap<>(EntityType.class);
+            }
+
+            worth += getWorth(previous, -1, materials, spawners);
+            worth += getWorth(slot, 1, materials, spawners);
+            slots[i] = slot;
+        }
+
+        if (materials != null) {
+            plugin.getWorthManager().add(chest.getChunk(), RecalculateReason.CHEST, WorthType.CHEST,
+                    worth, materials, spawners);
+        }
+    }
+
+    private double getWorth(long slot, int multiplier, Map<Material, Integer> materials,
+                            Map<EntityType, Integer> spawners) {
+        int amount = multiplier * ChestSnapshot.getAmount(slot);
+        if (amount == 0) {
+            return 0;
+        }
+
+        EntityType spawnerType = ChestSnapshot.getSpawner(slot);
+        if (spawnerType != null) {
+            spawners.merge(spawnerType, amount, Integer::sum);
+            return plugin.getSettings().getSpawnerPrice(spawnerType) * amount;
+        }
+
+        Material material = ChestSnapshot.getMaterial(slot);
+        materials.merge(material, amount, Integer::sum);
+        return plugin.getSettings().getBlockPrice(material) * amount;
     }
 
     private ChestWorth getWorth(Inventory inventory) {
@@ -220,36 +428,15 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
 
     private void updateWorth(Chest chest) {
         BlockPos pos = BlockPos.of(chest.getBlock());
-        ChestWorth worth = chests.remove(pos);
-        if (worth == null) return;
-
-        worth = getDifference(worth, getWorth(chest.getBlockInventory()));
-
-        plugin.getWorthManager().add(chest.getChunk(), RecalculateReason.CHEST, WorthType.CHEST,
-                worth.getTotalWorth(), worth.getMaterials(), worth.getSpawners());
-    }
-
-    private ChestWorth getDifference(ChestWorth first, ChestWorth second) {
-        double worth = second.getTotalWorth() - first.getTotalWorth();
-        Map<Material, Integer> materials = getDifference(first.getMaterials(), second.getMaterials());
-        Map<EntityType, Integer> spawners = getDifference(first.getSpawners(), second.getSpawners());
-        return new ChestWorth(worth, materials, spawners);
-    }
+        ChestSnapshot snapshot = chests.get(pos);
+        if (snapshot == null) return;
 
-    private <T> Map<T, Integer> getDifference(Map<T, Integer> first, Map<T, Integer> second) {
-        Map<T, Integer> target = new HashMap<>();
+        reconcile(chest, snapshot);
 
-        for (Map.Entry<T, Integer> entry : first.entrySet()) {
-            int difference = second.getOrDefault(entry.getKey(), 0) - entry.getValue();
-            target.put(entry.getKey(), difference);
+        snapshot.setViewers(snapshot.getViewers() - 1);
+        if (snapshot.getViewers() <= 0) {
+            chests.remove(pos);
         }
-
-        for (Map.Entry<T, Integer> entry : second.entrySet()) {
-            if (target.containsKey(entry.getKey())) continue;
-            target.put(entry.getKey(), entry.getValue());
-        }
-
-        return target;
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -267,6 +454,7 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
     public void removeFaction(FactionDisbandEvent event) {
         recentDisbands.add(event.getFactionId());
         plugin.getWorthManager().remove(event.getFactionId());
+        plugin.getBalanceManager().remove(event.getFactionId());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -282,13 +470,13 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void updateWorth(PlayerEconomyEvent event) {
         String factionId = plugin.getFactionsHook().getFaction(event.getPlayer());
-        plugin.getWorthManager().add(factionId, WorthType.PLAYER_BALANCE, event.getNewBalance() - event.getOldBalance());
+        plugin.getBalanceManager().update(event.getPlayer().getUniqueId(), factionId, event.getNewBalance());
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void updateWorth(FactionJoinEvent event) {
         double balance = plugin.getEconomyHook().getBalance(event.getPlayer());
-        plugin.getWorthManager().add(event.getFactionId(), WorthType.PLAYER_BALANCE, balance);
+        plugin.getBalanceManager().update(event.getPlayer().getUniqueId(), event.getFactionId(), balance);
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
@@ -298,7 +486,7 @@ public class WorthListener extends BukkitRunnable implements Listener, PluginSer
             return;
         }
 
-        double balance = plugin.getEconomyHook().getBalance(event.getPlayer());
+        double balance = plugin.getBalanceManager().remove(event.getPlayer().getUniqueId(), event.getFactionId());
         plugin.getWorthManager().add(event.getFactionId(), WorthType.PLAYER_BALANCE, -balance);
     }
 
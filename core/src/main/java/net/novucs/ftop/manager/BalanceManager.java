@@ -0,0 +1,172 @@
+package net.novucs.ftop.manager;
+
+import net.novucs.ftop.FactionsTopPlugin;
+import net.novucs.ftop.PluginService;
+import net.novucs.ftop.WorthType;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.*;
+
+/**
+ * Caches the balance of every faction member, so faction totals are summed
+ * without asking the economy. Uncached and stale balances are refreshed a
+ * few players per tick, adding any difference to the members faction.
+ */
+public class BalanceManager extends BukkitRunnable implements PluginService {
+
+    private final FactionsTopPlugin plugin;
+    private final Map<UUID, Double> balances = new HashMap<>();
+    private final Map<UUID, String> members = new HashMap<>();
+    private final Set<UUID> refreshQueue = new LinkedHashSet<>();
+    private long nextRefresh;
+
+    public BalanceManager(FactionsTopPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    @Override
+    public void initialize() {
+        nextRefresh = System.currentTimeMillis() + plugin.getSettings().getBalanceRefreshMillis();
+        runTaskTimer(plugin, 1, 1);
+    }
+
+    @Override
+    public void terminate() {
+        cancel();
+    }
+
+    /**
+     * Gets the cached total balance of the members of each faction, members
+     * with no cached balance are counted as zero until refreshed. The
+     * members of every faction are rebuilt, forgetting any no longer in
+     * one of the factions.
+     *
+     * @param factionIds the IDs of every ranked faction.
+     * @return the total member balance of each faction.
+     */
+    public Map<String, Double> getTotalBalances(Collection<String> factionIds) {
+        Map<String, Double> totals = new HashMap<>();
+        members.clear();
+
+        for (String factionId : factionIds) {
+            double total = 0;
+            for (UUID playerId : plugin.getFactionsHook().getMembers(factionId)) {
+                // Never count a member towards more than one faction.
+                if (members.putIfAbsent(playerId, factionId) != null) {
+                    continue;
+                }
+
+                Double balance = balances.get(playerId);
+                if (balance == null) {
+                    refreshQueue.add(playerId);
+                } else {
+                    total += balance;
+                }
+            }
+            totals.put(factionId, total);
+        }
+
+        balances.keySet().retainAll(members.keySet());
+        refreshQueue.retainAll(members.keySet());
+        return totals;
+    }
+
+    /**
+     * Updates the balance of a faction member, adding the difference from
+     * their cached balance to the faction. Members who have since moved
+     * faction have their whole balance moved over.
+     *
+     * @param playerId  the player ID.
+     * @param factionId the faction ID.
+     * @param balance   the current balance.
+     */
+    public void update(UUID playerId, String factionId, double balance) {
+        // Players without a ranked faction are not tracked.
+        if (plugin.getSettings().getIgnoredFactionIds().contains(factionId)) {
+            String previousFactionId = members.get(playerId);
+            if (previousFactionId != null) {
+                double previous = remove(playerId, previousFactionId);
+                plugin.getWorthManager().add(previousFactionId, WorthType.PLAYER_BALANCE, -previous);
+            }
+            return;
+        }
+
+        String previousFactionId = members.put(playerId, factionId);
+        refreshQueue.remove(playerId);
+        Double previous = balances.put(playerId, balance);
+
+        if (previous != null && !factionId.equals(previousFactionId)) {
+            plugin.getWorthManager().add(previousFactionId, WorthType.PLAYER_BALANCE, -previous);
+            plugin.getWorthManager().add(factionId, WorthType.PLAYER_BALANCE, balance);
+            return;
+        }
+
+        double difference = balance - (previous == null ? 0 : previous);
+        plugin.getWorthManager().add(factionId, WorthType.PLAYER_BALANCE, difference);
+    }
+
+    /**
+     * Removes a member from a faction.
+     *
+     * @param playerId  the player ID.
+     * @param factionId the faction ID.
+     * @return the balance counted towards the faction.
+     */
+    public double remove(UUID playerId, String factionId) {
+        if (!members.remove(playerId, factionId)) {
+            return 0;
+        }
+
+        refreshQueue.remove(playerId);
+        Double balance = balances.remove(playerId);
+        return balance == null ? 0 : balance;
+    }
+
+    /**
+     * Removes every member of a disbanded faction.
+     *
+     * @param factionId the faction ID.
+     */
+    public void remove(String factionId) {
+        Iterator<Map.Entry<UUID, String>> it = members.entrySet().iterator();
+        while (it.hasNext()) {
+            Map.Entry<UUID, String> entry = it.next();
+            if (entry.getValue().equals(factionId)) {
+                balances.remove(entry.getKey());
+                refreshQueue.remove(entry.getKey());
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        if (!plugin.getSettings().isEnabled(WorthType.PLAYER_BALANCE)) {
+            return;
+        }
+
+        // Periodically recheck every member, catching payments made while
+        // they were offline.
+        long now = System.currentTimeMillis();
+        if (refreshQueue.isEmpty() && now >= nextRefresh) {
+            refreshQueue.addAll(members.keySet());
+            nextRefresh = now + plugin.getSettings().getBalanceRefreshMillis();
+        }
+
+        int limit = plugin.getSettings().getBalanceRefreshPerTick();
+        while (limit-- > 0 && !refreshQueue.isEmpty()) {
+            // Refreshing modifies the queue, so take a new iterator each time.
+            Iterator<UUID> it = refreshQueue.iterator();
+            UUID playerId = it.next();
+            it.remove();
+            refresh(playerId);
+        }
+    }
+
+    private void refresh(UUID playerId) {
+        String factionId = members.get(playerId);
+        if (factionId != null) {
+            update(playerId, factionId, plugin.getEconomyHook().getBalance(playerId));
+        }
+    }
+}
@@ -9,34 +9,52 @@ import net.novucs.ftop.entity.BlockPos;
 import net.novucs.ftop.entity.ChunkPos;
 import net.novucs.ftop.entity.ChunkWorth;
 import net.novucs.ftop.entity.FactionWorth;
+import net.novucs.ftop.util.EnumCounter;
 import net.novucs.ftop.util.GenericUtils;
 import org.bukkit.Material;
 import org.bukkit.entity.EntityType;
 
 import java.sql.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
 public class DatabaseManager {
 
+    private static final int BATCH_SIZE = 500;
+    private static final int FETCH_SIZE = 10_000;
+    private static final int CLUSTER_WIDTH = 32;
+
     private final HikariDataSource dataSource;
+    private final boolean h2;
+    private final Map<String, Map<String, Integer>> nameIds = new ConcurrentHashMap<>();
+    private final Map<ChunkPos, Integer> chunkIds = new ConcurrentHashMap<>();
+    private volatile boolean initialized;
 
     public static DatabaseManager create(HikariConfig hikariConfig) throws SQLException {
         // Create the datasource.
         HikariDataSource dataSource = new HikariDataSource(hikariConfig);
 
-        // Test the connection.
+        // Test the connection and determine which upsert syntax to use.
         Connection connection = dataSource.getConnection();
+        boolean h2 = "H2".equalsIgnoreCase(connection.getMetaData().getDatabaseProductName());
         connection.close();
 
         // Return the new database manager.
-        return new DatabaseManager(dataSource);
+        return new DatabaseManager(dataSource, h2);
     }
 
-    private DatabaseManager(HikariDataSource dataSource) {
+    private DatabaseManager(HikariDataSource dataSource, boolean h2) {
         this.dataSource = dataSource;
+        this.h2 = h2;
     }
 
     private void init(Connection connection) throws SQLException {
+        // Tables only need to be created once per startup.
+        if (initialized) {
+            return;
+        }
+
         PreparedStatement statement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS `world` (" +
                 "`id` INT NOT NULL AUTO_INCREMENT," +
                 "`name` VARCHAR(40) NOT NULL UNIQUE," +
@@ -163,83 +181,150 @@ public class DatabaseManager {
                 "FOREIGN KEY (`spawner_id`) REFERENCES spawner(`id`), " +
                 "UNIQUE (`faction_id`, `spawner_id`))");
         statement.executeUpdate();
+
+        statement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS `chunk_scan` (" +
+                "`chunk_id` INT NOT NULL, " +
+                "`scanned` BIGINT NOT NULL, " +
+                "PRIMARY KEY (`chunk_id`), " +
+                "FOREIGN KEY (`chunk_id`) REFERENCES chunk(`id`))");
+        statement.executeUpdate();
+
+        statement = connection.prepareStatement("CREATE TABLE IF NOT EXISTS `recalculation` (" +
+                "`id` INT NOT NULL, " +
+                "`started` BIGINT NOT NULL, " +
+                "PRIMARY KEY (`id`))");
+        statement.executeUpdate();
+        initialized = true;
     }
 
     public Map<ChunkPos, ChunkWorth> load() throws SQLException {
-        Map<ChunkPos, ChunkWorth> target = new HashMap<>();
+        Connection connection = dataSource.getConnection();
 
-        Map<WorthType, Double> worth;
-        Map<Material, Integer> materialCount;
-        Map<EntityType, Integer> spawnerCount;
+        try {
+            init(connection);
 
-        Connection connection = dataSource.getConnection();
-        init(connection);
+            // Each table is read once in a single pass, so load time scales
+            // with the number of rows rather than the number of chunks.
+            Map<Integer, ChunkPos> chunks = getChunkMap(connection);
+            Map<Integer, ChunkWorth> chunkWorth = new HashMap<>(chunks.size() * 4 / 3 + 1);
+            for (Integer chunkId : chunks.keySet()) {
+                chunkWorth.put(chunkId, new ChunkWorth());
+            }
 
-        Map<Integer, ChunkPos> chunks = getChunkMap(connection);
+            loadChunkWorth(connection, chunkWorth);
+            loadChunkCounts(connection, chunkWorth, Material.class, "material", ChunkWorth::getMaterialCounter);
+            loadChunkCounts(connection, chunkWorth, EntityType.class, "spawner", ChunkWorth::getSpawnerCounter);
+            loadChunkScans(connection, chunkWorth);
 
-        for (Map.Entry<Integer, ChunkPos> entry : chunks.entrySet()) {
-            worth = getChunkWorth(connection, entry.getKey());
-            materialCount = getChunkMaterialCount(connection, entry.getKey());
-            spawnerCount = getChunkSpawnerCount(connection, entry.getKey());
-            target.put(entry.getValue(), new ChunkWorth(worth, materialCount, spawnerCount));
+            Map<ChunkPos, ChunkWorth> target = new HashMap<>(chunks.size() * 4 / 3 + 1);
+            for (Map.Entry<Integer, ChunkPos> entry : chunks.entrySet()) {
+                target.put(entry.getValue(), chunkWorth.get(entry.getKey()));
+                chunkIds.put(entry.getValue(), entry.getKey());
+            }
+            return target;
+        } finally {
+            connection.close();
         }
-
-        connection.close();
-        return target;
     }
 
     public void close() {
         dataSource.close();
     }
 
-    private Map<WorthType, Double> getChunkWorth(Connection connection, int chunkId) throws SQLException {
-        Map<WorthType, Double> target = new EnumMap<>(WorthType.class);
-
+    private void loadChunkWorth(Connection connection, Map<Integer, ChunkWorth> chunks) throws SQLException {
         Map<Integer, WorthType> worthMap = getWorthMap(connection);
 
-        PreparedStatement statement = connection.prepareStatement("SELECT `worth_id`,`worth` FROM `chunk_worth` WHERE `chunk_id`=?");
-        statement.setInt(1, chunkId);
+        PreparedStatement statement = prepareStream(connection, "SELECT `chunk_id`, `worth_id`, `worth` " +
+                "FROM `chunk_worth` ORDER BY `chunk_id`");
         ResultSet set = statement.executeQuery();
 
+        int currentId = -1;
+        ChunkWorth current = null;
+
         while (set.next()) {
+            // Rows arrive grouped by chunk, so the profile is only looked up
+            // once per chunk.
+            int chunkId = set.getInt("chunk_id");
+            if (chunkId != currentId) {
+                currentId = chunkId;
+                current = chunks.get(chunkId);
+            }
+
             WorthType worthType = worthMap.get(set.getInt("worth_id"));
-            double worth = set.getDouble("worth");
-            target.put(worthType, worth);
+            if (current == null || worthType == null || !WorthType.isPlaced(worthType)) {
+                continue;
+            }
+
+            current.setWorth(worthType, set.getDouble("worth"));
         }
 
         set.close();
         statement.close();
-
-        return target;
     }
 
-    private <T extends Enum<T>> Map<T, Integer> getCount(Connection connection, Class<T> clazz, String countType, int chunkId) throws SQLException {
-        Map<T, Integer> target = new EnumMap<>(clazz);
+    private <T extends Enum<T>> void loadChunkCounts(Connection connection, Map<Integer, ChunkWorth> chunks,
+                                                     Class<T> clazz, String countType,
+                                                     Function<ChunkWorth, EnumCounter<T>> counter) throws SQLException {
         Map<Integer, T> supportMap = getEnumMap(connection, clazz, countType);
 
-        PreparedStatement statement = connection.prepareStatement("SELECT `" + countType + "_id`,`count` " +
-                "FROM `chunk_" + countType + "_count` WHERE `chunk_id`=?");
-        statement.setInt(1, chunkId);
+        PreparedStatement statement = prepareStream(connection, "SELECT `chunk_id`, `" + countType + "_id`, `count` " +
+                "FROM `chunk_" + countType + "_count` ORDER BY `chunk_id`");
         ResultSet set = statement.executeQuery();
 
+        int currentId = -1;
+        EnumCounter<T> current = null;
+
         while (set.next()) {
+            int chunkId = set.getInt("chunk_id");
+            if (chunkId != currentId) {
+                currentId = chunkId;
+                ChunkWorth chunkWorth = chunks.get(chunkId);
+                current = chunkWorth == null ? null : counter.apply(chunkWorth);
+            }
+
             T countTypeEnum = supportMap.get(set.getInt(countType + "_id"));
-            int count = set.getInt("count");
-            target.put(countTypeEnum, count);
+            if (current == null || countTypeEnum == null) {
+                continue;
+            }
+
+            current.set(countTypeEnum, set.getInt("count"));
         }
 
         set.close();
         statement.close();
-
-        return target;
     }
 
-    private Map<Material, Integer> getChunkMaterialCount(Connection connection, int chunkId) throws SQLException {
-        return getCount(connection, Material.class, "material", chunkId);
+    private void loadChunkScans(Connection connection, Map<Integer, ChunkWorth> chunks) throws SQLException {
+        PreparedStatement statement = prepareStream(connection, "SELECT `chunk_id`, `scanned` FROM `chunk_scan`");
+        ResultSet set = statement.executeQuery();
+
+        while (set.next()) {
+            ChunkWorth chunkWorth = chunks.get(set.getInt("chunk_id"));
+            if (chunkWorth != null) {
+                chunkWorth.setLastScan(set.getLong("scanned"));
+            }
+        }
+
+        set.close();
+        statement.close();
     }
 
-    private Map<EntityType, Integer> getChunkSpawnerCount(Connection connection, int chunkId) throws SQLException {
-        return getCount(connection, EntityType.class, "spawner", chunkId);
+    /**
+     * Prepares a read only query which streams its results rather than
+     * holding every row in memory.
+     *
+     * @param connection the connection.
+     * @param sql        the query.
+     * @return the prepared statement.
+     * @throws SQLException if a database access error occurs.
+     */
+    private PreparedStatement prepareStream(Connection connection, String sql) throws SQLException {
+        PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+                ResultSet.CONCUR_READ_ONLY);
+
+        // MySQL only streams results row by row with this special fetch size.
+        statement.setFetchSize(h2 ? FETCH_SIZE : Integer.MIN_VALUE);
+        return statement;
     }
 
     private <T extends Enum<T>> Map<Integer, T> getEnumMap(Connection connection, Class<T> clazz, String table) throws SQLException {
@@ -266,20 +351,12 @@ public class DatabaseManager {
         return getEnumMap(connection, WorthType.class, "worth");
     }
 
-    private Map<Integer, Material> getMaterialMap(Connection connection) throws SQLException {
-        return getEnumMap(connection, Material.class, "material");
-    }
-
-    private Map<Integer, EntityType> getSpawnerMap(Connection connection) throws SQLException {
-        return getEnumMap(connection, EntityType.class, "spawner");
-    }
-
     private Map<Integer, ChunkPos> getChunkMap(Connection connection) throws SQLException {
         Map<Integer, ChunkPos> target = new HashMap<>();
 
         Map<Integer, String> worldMap = getWorldMap(connection);
 
-        PreparedStatement statement = connection.prepareStatement("SELECT * FROM `chunk`");
+        PreparedStatement statement = prepareStream(connection, "SELECT * FROM `chunk`");
         ResultSet set = statement.executeQuery();
 
         while (set.next()) {
@@ -315,175 +392,273 @@ public class DatabaseManager {
     }
 
     public void saveChunks(Collection<Map.Entry<ChunkPos, ChunkWorth>> chunkWorthEntries) throws SQLException {
+        if (chunkWorthEntries.isEmpty()) {
+            return;
+        }
+
         Connection connection = dataSource.getConnection();
-        init(connection);
 
-        for (Map.Entry<ChunkPos, ChunkWorth> entry : chunkWorthEntries) {
-            int chunkId = saveChunk(connection, entry.getKey());
-            saveChunkWorth(connection, chunkId, entry.getValue());
-        }
+        try {
+            init(connection);
 
-        connection.close();
-    }
+            // Resolve all IDs up front so the cached IDs are never left
+            // pointing at rows from a rolled back transaction.
+            Map<WorthType, Integer> worthIds = saveWorthTypes(connection);
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            Set<EntityType> spawners = EnumSet.noneOf(EntityType.class);
+            Set<ChunkPos> positions = new HashSet<>();
 
-    private void saveChunkWorth(Connection connection, int chunkId, ChunkWorth chunkWorth) throws SQLException {
-        for (Map.Entry<WorthType, Double> entry : chunkWorth.getWorth().entrySet()) {
-            saveChunkWorth(connection, chunkId, entry.getKey(), entry.getValue());
-        }
+            for (Map.Entry<ChunkPos, ChunkWorth> entry : chunkWorthEntries) {
+                positions.add(entry.getKey());
+                entry.getValue().getMaterialCounter().forEach((material, count) -> materials.add(material));
+                entry.getValue().getSpawnerCounter().forEach((spawner, count) -> spawners.add(spawner));
+            }
 
-        for (Map.Entry<Material, Integer> entry : chunkWorth.getMaterials().entrySet()) {
-            saveChunkMaterial(connection, chunkId, entry.getKey(), entry.getValue());
-        }
+            Map<Material, Integer> materialIds = saveNames(connection, "material", materials);
+            Map<EntityType, Integer> spawnerIds = saveNames(connection, "spawner", spawners);
+            saveChunkIds(connection, positions);
+
+            connection.setAutoCommit(false);
+
+            PreparedStatement worthStatement = connection.prepareStatement(
+                    upsert("chunk_worth", new String[]{"chunk_id", "worth_id"}, "worth"));
+            PreparedStatement materialStatement = connection.prepareStatement(
+                    upsert("chunk_material_count", new String[]{"chunk_id", "material_id"}, "count"));
+            PreparedStatement spawnerStatement = connection.prepareStatement(
+                    upsert("chunk_spawner_count", new String[]{"chunk_id", "spawner_id"}, "count"));
+            PreparedStatement scanStatement = connection.prepareStatement(
+                    upsert("chunk_scan", new String[]{"chunk_id"}, "scanned"));
+
+            int batched = 0;
+            for (Map.Entry<ChunkPos, ChunkWorth> entry : chunkWorthEntries) {
+                int chunkId = chunkIds.get(entry.getKey());
+                ChunkWorth chunkWorth = entry.getValue();
+
+                for (Map.Entry<WorthType, Double> worth : chunkWorth.getWorth().entrySet()) {
+                    worthStatement.setInt(1, chunkId);
+                    worthStatement.setInt(2, worthIds.get(worth.getKey()));
+                    worthStatement.setDouble(3, worth.getValue());
+                    worthStatement.addBatch();
+                }
+
+                // Copy the counters, as they may be modified meanwhile.
+                // Constants counted since the IDs were resolved are saved
+                // once the chunk is next queued.
+                EnumCounter<Material> materialCounter = new EnumCounter<>(chunkWorth.getMaterialCounter());
+                for (int ordinal = materialCounter.nextOrdinal(0); ordinal != -1;
+                     ordinal = materialCounter.nextOrdinal(ordinal + 1)) {
+                    Material material = materialCounter.getConstant(ordinal);
+                    int count = materialCounter.get(material);
+                    Integer materialId = materialIds.get(material);
+                    if (materialId == null) continue;
+                    materialStatement.setInt(1, chunkId);
+                    materialStatement.setInt(2, materialId);
+                    materialStatement.setInt(3, count);
+                    materialStatement.addBatch();
+                }
+
+                EnumCounter<EntityType> spawnerCounter = new EnumCounter<>(chunkWorth.getSpawnerCounter());
+                for (int ordinal = spawnerCounter.nextOrdinal(0); ordinal != -1;
+                     ordinal = spawnerCounter.nextOrdinal(ordinal + 1)) {
+                    EntityType spawner = spawnerCounter.getConstant(ordinal);
+                    int count = spawnerCounter.get(spawner);
+                    Integer spawnerId = spawnerIds.get(spawner);
+                    if (spawnerId == null) continue;
+                    spawnerStatement.setInt(1, chunkId);
+                    spawnerStatement.setInt(2, spawnerId);
+                    spawnerStatement.setInt(3, count);
+                    spawnerStatement.addBatch();
+                }
+
+                if (chunkWorth.getLastScan() > 0) {
+                    scanStatement.setInt(1, chunkId);
+                    scanStatement.setLong(2, chunkWorth.getLastScan());
+                    scanStatement.addBatch();
+                }
+
+                if (++batched % BATCH_SIZE == 0) {
+                    executeBatches(worthStatement, materialStatement, spawnerStatement, scanStatement);
+                }
+            }
 
-        for (Map.Entry<EntityType, Integer> entry : chunkWorth.getSpawners().entrySet()) {
-            saveChunkSpawner(connection, chunkId, entry.getKey(), entry.getValue());
+            executeBatches(worthStatement, materialStatement, spawnerStatement, scanStatement);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(connection);
+            throw e;
+        } finally {
+            connection.close();
+        }
+    }
+
+    /**
+     * Ensures every chunk has a row and its ID is cached.
+     *
+     * @param connection the connection.
+     * @param positions  the chunk positions.
+     * @throws SQLException if a database access error occurs.
+     */
+    private void saveChunkIds(Connection connection, Collection<ChunkPos> positions) throws SQLException {
+        List<ChunkPos> missing = new ArrayList<>();
+        for (ChunkPos pos : positions) {
+            if (!chunkIds.containsKey(pos)) {
+                missing.add(pos);
+            }
         }
-    }
 
-    private int saveChunkMaterial(Connection connection, int chunkId, Material material, int count) throws SQLException {
-        int materialId = saveMaterial(connection, material);
-        int id = getChunkMaterialId(connection, chunkId, materialId);
-        if (id > 0) {
-            PreparedStatement statement = connection.prepareStatement("UPDATE `chunk_material_count` SET `count` = ? WHERE `id` = ?");
-            statement.setInt(1, count);
-            statement.setInt(2, id);
-            statement.executeUpdate();
-            return id;
+        if (missing.isEmpty()) {
+            return;
         }
 
-        PreparedStatement statement = connection.prepareStatement("INSERT INTO `chunk_material_count` (`chunk_id`, `material_id`, `count`) VALUES(?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
-        statement.setInt(1, chunkId);
-        statement.setInt(2, materialId);
-        statement.setInt(3, count);
-
-        statement.executeUpdate();
-        ResultSet set = statement.getGeneratedKeys();
+        PreparedStatement statement = connection.prepareStatement(upsert("chunk", new String[]{"world_id", "x", "z"}));
+        for (int i = 0; i < missing.size(); i++) {
+            ChunkPos pos = missing.get(i);
+            statement.setInt(1, saveWorld(connection, pos.getWorld()));
+            statement.setInt(2, pos.getX());
+            statement.setInt(3, pos.getZ());
+            statement.addBatch();
 
-        set.next();
-        return set.getInt(1);
-    }
-
-    private int getChunkMaterialId(Connection connection, int chunkId, int materialId) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("SELECT `id` FROM `chunk_material_count` WHERE `chunk_id` = ? AND `material_id` = ?");
-        statement.setInt(1, chunkId);
-        statement.setInt(2, materialId);
-        ResultSet set = statement.executeQuery();
-        if (set.next()) {
-            return set.getInt("id");
+            if ((i + 1) % BATCH_SIZE == 0) {
+                statement.executeBatch();
+            }
         }
+        statement.executeBatch();
+        statement.close();
 
-        return -1;
+        // Read the new IDs back with one ranged select per cluster of chunks
+        // in each world, rather than one select per chunk.
+        Map<String, List<ChunkPos>> worlds = new HashMap<>();
+        for (ChunkPos pos : missing) {
+            worlds.computeIfAbsent(pos.getWorld(), k -> new ArrayList<>()).add(pos);
+        }
+
+        statement = prepareStream(connection, "SELECT `id`, `x`, `z` FROM `chunk` " +
+                "WHERE `world_id` = ? AND `x` BETWEEN ? AND ? AND `z` BETWEEN ? AND ?");
+        for (Map.Entry<String, List<ChunkPos>> world : worlds.entrySet()) {
+            int worldId = saveWorld(connection, world.getKey());
+            List<ChunkPos> chunks = world.getValue();
+            chunks.sort(Comparator.comparingInt(ChunkPos::getX));
+
+            int start = 0;
+            for (int i = 1; i <= chunks.size(); i++) {
+                if (i == chunks.size() || chunks.get(i).getX() - chunks.get(start).getX() > CLUSTER_WIDTH) {
+                    loadChunkIds(statement, worldId, world.getKey(), chunks.subList(start, i));
+                    start = i;
+                }
+            }
+        }
+        statement.close();
     }
 
-    private int saveChunkSpawner(Connection connection, int chunkId, EntityType spawner, int count) throws SQLException {
-        int spawnerId = saveSpawner(connection, spawner);
-        int id = getChunkSpawnerId(connection, chunkId, spawnerId);
-        if (id > 0) {
-            PreparedStatement statement = connection.prepareStatement("UPDATE `chunk_spawner_count` SET `count` = ? WHERE `id` = ?");
-            statement.setInt(1, count);
-            statement.setInt(2, id);
-            statement.executeUpdate();
-            return id;
+    /**
+     * Caches the IDs of a cluster of chunks in a single ranged select.
+     *
+     * @param statement the ranged select statement.
+     * @param worldId   the world ID.
+     * @param world     the world name.
+     * @param chunks    the chunks sorted by x coordinate.
+     * @throws SQLException if a database access error occurs.
+     */
+    private void loadChunkIds(PreparedStatement statement, int worldId, String world,
+                              List<ChunkPos> chunks) throws SQLException {
+        Set<ChunkPos> wanted = new HashSet<>(chunks);
+        int minZ = Integer.MAX_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (ChunkPos pos : chunks) {
+            minZ = Math.min(minZ, pos.getZ());
+            maxZ = Math.max(maxZ, pos.getZ());
         }
 
-        PreparedStatement statement = connection.prepareStatement("INSERT INTO `chunk_spawner_count` (`chunk_id`, `spawner_id`, `count`) VALUES(?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
-        statement.setInt(1, chunkId);
-        statement.setInt(2, spawnerId);
-        statement.setInt(3, count);
-
-        statement.executeUpdate();
-        ResultSet set = statement.getGeneratedKeys();
-
-        set.next();
-        return set.getInt(1);
-    }
+        statement.setInt(1, worldId);
+        statement.setInt(2, chunks.get(0).getX());
+        statement.setInt(3, chunks.get(chunks.size() - 1).getX());
+        statement.setInt(4, minZ);
+        statement.setInt(5, maxZ);
 
-    private int getChunkSpawnerId(Connection connection, int chunkId, int spawnerId) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("SELECT `id` FROM `chunk_spawner_count` WHERE `chunk_id` = ? AND `spawner_id` = ?");
-        statement.setInt(1, chunkId);
-        statement.setInt(2, spawnerId);
         ResultSet set = statement.executeQuery();
-        if (set.next()) {
-            return set.getInt("id");
+        while (set.next()) {
+            ChunkPos pos = ChunkPos.of(world, set.getInt("x"), set.getInt("z"));
+            if (wanted.contains(pos)) {
+                chunkIds.put(pos, set.getInt("id"));
+            }
         }
-
-        return -1;
+        set.close();
     }
 
-    private int saveChunkWorth(Connection connection, int chunkId, WorthType worthType, double worth) throws SQLException {
-        int worthId = saveWorth(connection, worthType);
-        int id = getChunkWorthId(connection, chunkId, worthId);
-        if (id > 0) {
-            PreparedStatement statement = connection.prepareStatement("UPDATE `chunk_worth` SET `worth` = ? WHERE `id` = ?");
-            statement.setDouble(1, worth);
-            statement.setInt(2, id);
-            statement.executeUpdate();
-            return id;
+    /**
+     * Creates an insert statement which instead updates the values of the
+     * existing row when the keys conflict with a unique constraint.
+     *
+     * @param table  the table.
+     * @param keys   the unique key columns.
+     * @param values the value columns.
+     * @return the upsert statement.
+     */
+    private String upsert(String table, String[] keys, String... values) {
+        StringJoiner columns = new StringJoiner("`, `", "`", "`");
+        StringJoiner params = new StringJoiner(", ");
+        for (String column : keys) {
+            columns.add(column);
+            params.add("?");
+        }
+        for (String column : values) {
+            columns.add(column);
+            params.add("?");
+        }
+
+        if (h2) {
+            StringJoiner keyColumns = new StringJoiner("`, `", "`", "`");
+            for (String key : keys) {
+                keyColumns.add(key);
+            }
+            return "MERGE INTO `" + table + "` (" + columns + ") KEY (" + keyColumns + ") VALUES (" + params + ")";
         }
 
-        PreparedStatement statement = connection.prepareStatement("INSERT INTO `chunk_worth` (`chunk_id`, `worth_id`, `worth`) VALUES(?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
-        statement.setInt(1, chunkId);
-        statement.setInt(2, worthId);
-        statement.setDouble(3, worth);
-
-        statement.executeUpdate();
-        ResultSet set = statement.getGeneratedKeys();
-
-        set.next();
-        return set.getInt(1);
+        StringJoiner updates = new StringJoiner(", ");
+        for (String column : values) {
+            updates.add("`" + column + "` = VALUES(`" + column + "`)");
+        }
+        if (values.length == 0) {
+            updates.add("`id` = `id`");
+        }
+        return "INSERT INTO `" + table + "` (" + columns + ") VALUES (" + params + ") ON DUPLICATE KEY UPDATE " + updates;
     }
 
-    private int getChunkWorthId(Connection connection, int chunkId, int worthId) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("SELECT `id` FROM `chunk_worth` WHERE `chunk_id` = ? AND `worth_id` = ?");
-        statement.setInt(1, chunkId);
-        statement.setInt(2, worthId);
-        ResultSet set = statement.executeQuery();
-        if (set.next()) {
-            return set.getInt("id");
+    private void executeBatches(PreparedStatement... statements) throws SQLException {
+        for (PreparedStatement statement : statements) {
+            statement.executeBatch();
         }
-
-        return -1;
     }
 
-    private int saveChunk(Connection connection, ChunkPos pos) throws SQLException {
-        int worldId = saveWorld(connection, pos.getWorld());
-        int id = getChunkId(connection, worldId, pos.getX(), pos.getZ());
-        if (id > 0) {
-            return id;
+    private void rollback(Connection connection) {
+        try {
+            connection.rollback();
+        } catch (SQLException ignore) {
         }
+    }
 
-        PreparedStatement statement = connection.prepareStatement("INSERT INTO `chunk` (`world_id`, `x`, `z`) VALUES(?, ?, ?)",
-                Statement.RETURN_GENERATED_KEYS);
-        statement.setInt(1, worldId);
-        statement.setInt(2, pos.getX());
-        statement.setInt(3, pos.getZ());
-
-        statement.executeUpdate();
-        ResultSet set = statement.getGeneratedKeys();
-
-        set.next();
-        return set.getInt(1);
+    private Map<WorthType, Integer> saveWorthTypes(Connection connection) throws SQLException {
+        return saveNames(connection, "worth", EnumSet.allOf(WorthType.class));
     }
 
-    private int getChunkId(Connection connection, int worldId, int x, int z) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("SELECT `id` FROM `chunk` WHERE `world_id` = ? AND `x` = ? AND `z` = ?");
-        statement.setInt(1, worldId);
-        statement.setInt(2, x);
-        statement.setInt(3, z);
-        ResultSet set = statement.executeQuery();
-        if (set.next()) {
-            return set.getInt("id");
+    private <T extends Enum<T>> Map<T, Integer> saveNames(Connection connection, String table, Set<T> names) throws SQLException {
+        Map<T, Integer> target = new HashMap<>();
+        for (T name : names) {
+            target.put(name, saveName(connection, table, name.name()));
         }
-
-        return -1;
+        return target;
     }
 
     private int saveName(Connection connection, String table, String name) throws SQLException {
+        Map<String, Integer> ids = nameIds.computeIfAbsent(table, k -> new ConcurrentHashMap<>());
+        Integer cached = ids.get(name);
+        if (cached != null) {
+            return cached;
+        }
+
         int id = getNameId(connection, table, name);
         if (id > 0) {
+            ids.put(name, id);
             return id;
         }
 
@@ -494,7 +669,9 @@ public class DatabaseManager {
 
         ResultSet set = statement.getGeneratedKeys();
         set.next();
-        return set.getInt(1);
+        id = set.getInt(1);
+        ids.put(name, id);
+        return id;
     }
 
     private int getNameId(Connection connection, String table, String name) throws SQLException {
@@ -508,20 +685,54 @@ public class DatabaseManager {
         return -1;
     }
 
-    private int saveMaterial(Connection connection, Material material) throws SQLException {
-        return saveName(connection, "material", material.name());
+    private int saveWorld(Connection connection, String world) throws SQLException {
+        return saveName(connection, "world", world);
     }
 
-    private int saveSpawner(Connection connection, EntityType spawner) throws SQLException {
-        return saveName(connection, "spawner", spawner.name());
+    /**
+     * Gets when the unfinished recalculation was started.
+     *
+     * @return the epoch millis the recalculation started, or -1 if none.
+     * @throws SQLException if a database access error occurs.
+     */
+    public long loadRecalculation() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            init(connection);
+            PreparedStatement statement = connection.prepareStatement("SELECT `started` FROM `recalculation` WHERE `id` = 1");
+            ResultSet set = statement.executeQuery();
+            return set.next() ? set.getLong("started") : -1;
+        } finally {
+            connection.close();
+        }
     }
 
-    private int saveWorld(Connection connection, String world) throws SQLException {
-        return saveName(connection, "world", world);
+    public void saveRecalculation(long started) throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            init(connection);
+            PreparedStatement statement = connection.prepareStatement(
+                    upsert("recalculation", new String[]{"id"}, "started"));
+            statement.setInt(1, 1);
+            statement.setLong(2, started);
+            statement.executeUpdate();
+        } finally {
+            connection.close();
+        }
     }
 
-    private int saveWorth(Connection connection, WorthType worthType) throws SQLException {
-        return saveName(connection, "worth", worthType.name());
+    public void removeRecalculation() throws SQLException {
+        Connection connection = dataSource.getConnection();
+
+        try {
+            init(connection);
+            PreparedStatement statement = connection.prepareStatement("DELETE FROM `recalculation`");
+            statement.executeUpdate();
+        } finally {
+            connection.close();
+        }
     }
 
     public Multimap<Integer, BlockPos> loadSigns() throws SQLException {
@@ -655,213 +866,116 @@ public class DatabaseManager {
     }
 
     public void saveFactions(Collection<FactionWorth> factions) throws SQLException {
-        Connection connection = dataSource.getConnection();
-        init(connection);
-
-        for (FactionWorth faction : factions) {
-            saveFaction(connection, faction);
-        }
-
-        connection.close();
-    }
-
-    private boolean isFactionSaved(Connection connection, FactionWorth faction) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("SELECT `id` FROM `faction` WHERE `id` = ?");
-        statement.setString(1, faction.getFactionId());
-        return statement.executeQuery().next();
-    }
-
-    private void saveFaction(Connection connection, FactionWorth faction) throws SQLException {
-        if (isFactionSaved(connection, faction)) {
-            updateFaction(connection, faction);
-        } else {
-            createFaction(connection, faction);
+        if (factions.isEmpty()) {
+            return;
         }
 
-        saveFactionWorth(connection, faction);
-        saveFactionMaterials(connection, faction);
-        saveFactionSpawners(connection, faction);
-    }
-
-    private void createFaction(Connection connection, FactionWorth faction) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("INSERT INTO `faction` (`id`, `name`, `total_worth`, `total_spawners`) VALUES(?, ?, ?, ?)");
-        statement.setString(1, faction.getFactionId());
-        statement.setString(2, faction.getName());
-        statement.setDouble(3, faction.getTotalWorth());
-        statement.setInt(4, faction.getTotalSpawnerCount());
-        statement.executeUpdate();
-    }
-
-    private void updateFaction(Connection connection, FactionWorth faction) throws SQLException {
-        PreparedStatement statement = connection.prepareStatement("UPDATE `faction` " +
-                "SET `name` = ?, `total_worth` = ?, `total_spawners` = ? " +
-                "WHERE `id` = ?");
-        statement.setString(1, faction.getName());
-        statement.setDouble(2, faction.getTotalWorth());
-        statement.setInt(3, faction.getTotalSpawnerCount());
-        statement.setString(4, faction.getFactionId());
-        statement.executeUpdate();
-    }
-
-    private void saveFactionWorth(Connection connection, FactionWorth faction) throws SQLException {
-        Map<Integer, WorthType> worthMap = getWorthMap(connection);
-        PreparedStatement statement = connection.prepareStatement("SELECT `worth_id`, `worth` " +
-                "FROM `faction_worth` " +
-                "WHERE `faction_id` = ?");
-        statement.setString(1, faction.getFactionId());
-        ResultSet set = statement.executeQuery();
-
-        Set<WorthType> worthTypes = Collections.newSetFromMap(new EnumMap<>(WorthType.class));
-
-        while (set.next()) {
-            int worthId = set.getInt("worth_id");
-            WorthType type = worthMap.getOrDefault(worthId, null);
-            if (type == null) {
-                continue;
-            }
-
-            worthTypes.add(type);
-
-            double worth = set.getDouble("worth");
-            double localWorth = faction.getWorth(type);
-
-            if (worth == localWorth) {
-                continue;
-            }
-
-            statement = connection.prepareStatement("DELETE FROM `faction_worth`" +
-                    "WHERE `faction_id` = ? AND `worth_id` = ?");
-            statement.setString(1, faction.getFactionId());
-            statement.setInt(2, worthId);
-            statement.executeUpdate();
-        }
-
-        for (Map.Entry<WorthType, Double> entry : faction.getWorth().entrySet()) {
-            int worthId = saveWorth(connection, entry.getKey());
-
-            if (worthTypes.contains(entry.getKey())) {
-                statement = connection.prepareStatement("UPDATE `faction_worth` " +
-                        "SET `worth` = ? " +
-                        "WHERE `faction_id` = ? AND `worth_id` = ?");
-                statement.setDouble(1, entry.getValue());
-                statement.setString(2, faction.getFactionId());
-                statement.setInt(3, worthId);
-                statement.executeUpdate();
-            } else {
-                statement = connection.prepareStatement("INSERT INTO `faction_worth` (`faction_id`, `worth_id`, `worth`) VALUES (?, ?, ?)");
-                statement.setString(1, faction.getFactionId());
-                statement.setInt(2, worthId);
-                statement.setDouble(3, entry.getValue());
-                statement.executeUpdate();
-            }
-        }
-    }
-
-    private void saveFactionMaterials(Connection connection, FactionWorth faction) throws SQLException {
-        Map<Integer, Material> materialMap = getMaterialMap(connection);
-        PreparedStatement statement = connection.prepareStatement("SELECT `material_id`, `count` " +
-                "FROM `faction_material_count` " +
-                "WHERE `faction_id` = ?");
-        statement.setString(1, faction.getFactionId());
-        ResultSet set = statement.executeQuery();
+        Connection connection = dataSource.getConnection();
 
-        Set<Material> materials = Collections.newSetFromMap(new EnumMap<>(Material.class));
+        try {
+            init(connection);
 
-        while (set.next()) {
-            int materialId = set.getInt("material_id");
-            Material material = materialMap.getOrDefault(materialId, null);
-            if (material == null) {
-                continue;
+            // Factions may be queued more than once, only the latest state
+            // needs saving. Each is copied once, as it may be modified
+            // meanwhile, so the IDs resolved match the counts inserted.
+            Map<String, FactionWorth> latest = new LinkedHashMap<>();
+            for (FactionWorth faction : factions) {
+                latest.put(faction.getFactionId(), faction);
             }
+            latest.replaceAll((factionId, faction) -> new FactionWorth(faction));
 
-            materials.add(material);
+            // Resolve all IDs before the transaction begins.
+            Map<WorthType, Integer> worthIds = saveWorthTypes(connection);
+            Set<Material> materials = EnumSet.noneOf(Material.class);
+            Set<EntityType> spawners = EnumSet.noneOf(EntityType.class);
 
-            int count = set.getInt("count");
-            int localCount = faction.getMaterials().getOrDefault(material, 0);
-
-            if (count == localCount) {
-                continue;
+            for (FactionWorth faction : latest.values()) {
+                faction.getMaterialCounter().forEach((material, count) -> materials.add(material));
+                faction.getSpawnerCounter().forEach((spawner, count) -> spawners.add(spawner));
             }
 
-            statement = connection.prepareStatement("DELETE FROM `faction_material_count`" +
-                    "WHERE `faction_id` = ? AND `material_id` = ?");
-            statement.setString(1, faction.getFactionId());
-            statement.setInt(2, materialId);
-            statement.executeUpdate();
-        }
-
-        for (Map.Entry<Material, Integer> entry : faction.getMaterials().entrySet()) {
-            int materialId = saveMaterial(connection, entry.getKey());
-
-            if (materials.contains(entry.getKey())) {
-                statement = connection.prepareStatement("UPDATE `faction_material_count` " +
-                        "SET `count` = ? " +
-                        "WHERE `faction_id` = ? AND `material_id` = ?");
-                statement.setDouble(1, entry.getValue());
-                statement.setString(2, faction.getFactionId());
-                statement.setInt(3, materialId);
-                statement.executeUpdate();
-            } else {
-                statement = connection.prepareStatement("INSERT INTO `faction_material_count` (`faction_id`, `material_id`, `count`) VALUES (?, ?, ?)");
-                statement.setString(1, faction.getFactionId());
-                statement.setInt(2, materialId);
-                statement.setDouble(3, entry.getValue());
-                statement.executeUpdate();
+            Map<Material, Integer> materialIds = saveNames(connection, "material", materials);
+            Map<EntityType, Integer> spawnerIds = saveNames(connection, "spawner", spawners);
+
+            connection.setAutoCommit(false);
+
+            PreparedStatement factionStatement = connection.prepareStatement(
+                    upsert("faction", new String[]{"id"}, "name", "total_worth", "total_spawners"));
+            PreparedStatement worthStatement = connection.prepareStatement(
+                    upsert("faction_worth", new String[]{"faction_id", "worth_id"}, "worth"));
+
+            // Counts are replaced outright so materials and spawners the
+            // faction no longer has are removed.
+            PreparedStatement materialDelete = connection.prepareStatement(
+                    "DELETE FROM `faction_material_count` WHERE `faction_id` = ?");
+            PreparedStatement materialInsert = connection.prepareStatement(
+                    "INSERT INTO `faction_material_count` (`faction_id`, `material_id`, `count`) VALUES (?, ?, ?)");
+            PreparedStatement spawnerDelete = connection.prepareStatement(
+                    "DELETE FROM `faction_spawner_count` WHERE `faction_id` = ?");
+            PreparedStatement spawnerInsert = connection.prepareStatement(
+                    "INSERT INTO `faction_spawner_count` (`faction_id`, `spawner_id`, `count`) VALUES (?, ?, ?)");
+
+            int batched = 0;
+            for (FactionWorth faction : latest.values()) {
+                String factionId = faction.getFactionId();
+
+                factionStatement.setString(1, factionId);
+                factionStatement.setString(2, faction.getName());
+                factionStatement.setDouble(3, faction.getTotalWorth());
+                factionStatement.setInt(4, faction.getTotalSpawnerCount());
+                factionStatement.addBatch();
+
+                for (Map.Entry<WorthType, Double> worth : faction.getWorth().entrySet()) {
+                    worthStatement.setString(1, factionId);
+                    worthStatement.setInt(2, worthIds.get(worth.getKey()));
+                    worthStatement.setDouble(3, worth.getValue());
+                    worthStatement.addBatch();
+                }
+
+                materialDelete.setString(1, factionId);
+                materialDelete.addBatch();
+                EnumCounter<Material> materialCounter = faction.getMaterialCounter();
+                for (int ordinal = materialCounter.nextOrdinal(0); ordinal != -1;
+                     ordinal = materialCounter.nextOrdinal(ordinal + 1)) {
+                    Material material = materialCounter.getConstant(ordinal);
+                    int count = materialCounter.get(material);
+                    Integer materialId = materialIds.get(material);
+                    if (materialId == null || count == 0) continue;
+                    materialInsert.setString(1, factionId);
+                    materialInsert.setInt(2, materialId);
+                    materialInsert.setInt(3, count);
+                    materialInsert.addBatch();
+                }
+
+                spawnerDelete.setString(1, factionId);
+                spawnerDelete.addBatch();
+                EnumCounter<EntityType> spawnerCounter = faction.getSpawnerCounter();
+                for (int ordinal = spawnerCounter.nextOrdinal(0); ordinal != -1;
+                     ordinal = spawnerCounter.nextOrdinal(ordinal + 1)) {
+                    EntityType spawner = spawnerCounter.getConstant(ordinal);
+                    int count = spawnerCounter.get(spawner);
+                    Integer spawnerId = spawnerIds.get(spawner);
+                    if (spawnerId == null || count == 0) continue;
+                    spawnerInsert.setString(1, factionId);
+                    spawnerInsert.setInt(2, spawnerId);
+                    spawnerInsert.setInt(3, count);
+                    spawnerInsert.addBatch();
+                }
+
+                if (++batched % BATCH_SIZE == 0) {
+                    executeBatches(factionStatement, worthStatement, materialDelete, materialInsert,
+                            spawnerDelete, spawnerInsert);
+                }
             }
-        }
-    }
-
-    private void saveFactionSpawners(Connection connection, FactionWorth faction) throws SQLException {
-        Map<Integer, EntityType> spawnerMap = getSpawnerMap(connection);
-        PreparedStatement statement = connection.prepareStatement("SELECT `spawner_id`, `count` " +
-                "FROM `faction_spawner_count` " +
-                "WHERE `faction_id` = ?");
-        statement.setString(1, faction.getFactionId());
-        ResultSet set = statement.executeQuery();
-
-        Set<EntityType> spawners = Collections.newSetFromMap(new EnumMap<>(EntityType.class));
 
-        while (set.next()) {
-            int spawnerId = set.getInt("spawner_id");
-            EntityType spawner = spawnerMap.getOrDefault(spawnerId, null);
-            if (spawner == null) {
-                continue;
-            }
-
-            spawners.add(spawner);
-
-            int count = set.getInt("count");
-            int localCount = faction.getSpawners().getOrDefault(spawner, 0);
-
-            if (count == localCount) {
-                continue;
-            }
-
-            statement = connection.prepareStatement("DELETE FROM `faction_spawner_count`" +
-                    "WHERE `faction_id` = ? AND `spawner_id` = ?");
-            statement.setString(1, faction.getFactionId());
-            statement.setInt(2, spawnerId);
-            statement.executeUpdate();
-        }
-
-        for (Map.Entry<EntityType, Integer> entry : faction.getSpawners().entrySet()) {
-            int spawnerId = saveSpawner(connection, entry.getKey());
-
-            if (spawners.contains(entry.getKey())) {
-                statement = connection.prepareStatement("UPDATE `faction_spawner_count` " +
-                        "SET `count` = ? " +
-                        "WHERE `faction_id` = ? AND `spawner_id` = ?");
-                statement.setDouble(1, entry.getValue());
-                statement.setString(2, faction.getFactionId());
-                statement.setInt(3, spawnerId);
-                statement.executeUpdate();
-            } else {
-                statement = connection.prepareStatement("INSERT INTO `faction_spawner_count` (`faction_id`, `spawner_id`, `count`) VALUES (?, ?, ?)");
-                statement.setString(1, faction.getFactionId());
-                statement.setInt(2, spawnerId);
-                statement.setDouble(3, entry.getValue());
-                statement.executeUpdate();
-            }
+            executeBatches(factionStatement, worthStatement, materialDelete, materialInsert,
+                    spawnerDelete, spawnerInsert);
+            connection.commit();
+        } catch (SQLException e) {
+            rollback(connection);
+            throw e;
+        } finally {
+            connection.close();
         }
     }
 }
@@ -2,11 +2,16 @@ package net.novucs.ftop.manager;
 
 import net.novucs.ftop.FactionsTopPlugin;
 import net.novucs.ftop.entity.FactionWorth;
+import net.novucs.ftop.entity.RankingSnapshot;
 import net.novucs.ftop.gui.GuiContext;
+import net.novucs.ftop.gui.GuiPage;
 import net.novucs.ftop.util.StringUtils;
+import org.bukkit.ChatColor;
 import org.bukkit.entity.HumanEntity;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
 
 import java.util.*;
 
@@ -15,6 +20,9 @@ public class GuiManager {
     private static final int MAX_TITLE_SIZE = 32;
     private final FactionsTopPlugin plugin;
     private final Map<Inventory, GuiContext> inventories = new WeakHashMap<>();
+    private final Map<Integer, GuiPage> pages = new HashMap<>();
+    private long cacheVersion = -1;
+    private int cacheRevision = -1;
 
     public GuiManager(FactionsTopPlugin plugin) {
         this.plugin = plugin;
@@ -35,11 +43,62 @@ public class GuiManager {
     }
 
     public void sendGui(Player player, int page) {
+        RankingSnapshot snapshot = plugin.getWorthManager().getRankingSnapshot();
         int entries = plugin.getSettings().getGuiLayout().getFactionsPerPage();
-        List<FactionWorth> factions = plugin.getWorthManager().getOrderedFactions();
-        int maxPage = Math.max((int) Math.ceil((double) factions.size() / entries), 1);
+        int maxPage = Math.max((int) Math.ceil((double) snapshot.size() / entries), 1);
         page = Math.max(1, Math.min(maxPage, page));
 
+        // Rendered pages are only valid for the ranking and settings they
+        // were rendered from.
+        int revision = plugin.getSettings().getRevision();
+        if (cacheVersion != snapshot.getVersion() || cacheRevision != revision) {
+            pages.clear();
+            cacheVersion = snapshot.getVersion();
+            cacheRevision = revision;
+        }
+
+        GuiPage guiPage = pages.get(page);
+        if (guiPage == null) {
+            guiPage = render(snapshot, page, maxPage);
+            pages.put(page, guiPage);
+        }
+
+        Inventory inventory = plugin.getServer().createInventory(null, guiPage.getContents().length, guiPage.getTitle());
+        inventory.setContents(guiPage.getContents());
+
+        // Apply the relation colors for this viewer.
+        for (Map.Entry<Integer, String> entry : guiPage.getRelationalSlots().entrySet()) {
+            ChatColor color = StringUtils.getRelationColor(plugin, player, entry.getValue());
+            ItemStack item = guiPage.getContents()[entry.getKey()].clone();
+            ItemMeta meta = item.getItemMeta();
+            String relcolor = color.toString();
+
+            if (meta.hasDisplayName()) {
+                meta.setDisplayName(meta.getDisplayName().replace(GuiPage.RELCOLOR_MARKER, relcolor));
+            }
+
+            if (meta.hasLore()) {
+                List<String> lore = new ArrayList<>(meta.getLore().size());
+                for (String line : meta.getLore()) {
+                    lore.add(line.replace(GuiPage.RELCOLOR_MARKER, relcolor));
+                }
+                meta.setLore(lore);
+            }
+
+            item.setItemMeta(meta);
+            inventory.setItem(entry.getKey(), item);
+        }
+
+        GuiContext context = new GuiContext(plugin, player, inventory, maxPage, page,
+                snapshot.getFactions().listIterator(), Collections.emptyMap());
+        context.getSlots().addAll(guiPage.getSlots());
+        inventories.put(inventory, context);
+        player.openInventory(inventory);
+    }
+
+    private GuiPage render(RankingSnapshot snapshot, int page, int maxPage) {
+        int entries = plugin.getSettings().getGuiLayout().getFactionsPerPage();
+
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("{page:back}", String.valueOf(page - 1));
         placeholders.put("{page:this}", String.valueOf(page));
@@ -47,7 +106,7 @@ public class GuiManager {
         placeholders.put("{page:last}", String.valueOf(maxPage));
 
         int spacer = entries * (page - 1);
-        ListIterator<FactionWorth> it = factions.listIterator(spacer);
+        ListIterator<FactionWorth> it = snapshot.getFactions().listIterator(spacer);
 
         int lines = plugin.getSettings().getGuiLineCount() * 9;
         String name = StringUtils.replace(plugin.getSettings().getGuiInventoryName(), placeholders);
@@ -56,11 +115,11 @@ public class GuiManager {
         }
         Inventory inventory = plugin.getServer().createInventory(null, lines, name);
 
-        GuiContext context = new GuiContext(plugin, player, inventory, maxPage, page, it, placeholders);
+        GuiContext context = new GuiContext(plugin, null, inventory, maxPage, page, it, placeholders);
         context.setCurrentRank(spacer + 1);
 
         plugin.getSettings().getGuiLayout().render(context);
-        inventories.put(inventory, context);
-        player.openInventory(inventory);
+        return new GuiPage(name, inventory.getContents(), new ArrayList<>(context.getSlots()),
+                new HashMap<>(context.getRelationalSlots()));
     }
 }
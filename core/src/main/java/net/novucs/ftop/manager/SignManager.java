@@ -5,9 +5,11 @@ import com.google.common.collect.Multimap;
 import net.novucs.ftop.FactionsTopPlugin;
 import net.novucs.ftop.PluginService;
 import net.novucs.ftop.entity.BlockPos;
+import net.novucs.ftop.entity.ChunkPos;
 import net.novucs.ftop.entity.FactionWorth;
 import org.bukkit.ChatColor;
-import org.bukkit.block.Block;
+import org.bukkit.World;
+import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
@@ -15,13 +17,11 @@ import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.SignChangeEvent;
+import org.bukkit.event.world.ChunkLoadEvent;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.sql.SQLException;
-import java.util.Collection;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.logging.Level;
 import java.util.regex.Pattern;
 
@@ -30,7 +30,9 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
     private static final Pattern signRegex = Pattern.compile("\\[f(|actions)top\\]");
     private final FactionsTopPlugin plugin;
     private final Multimap<Integer, BlockPos> signs = HashMultimap.create();
-    private final Map<Integer, Double> previous = new HashMap<>();
+    private final Map<BlockPos, Integer> signRanks = new HashMap<>();
+    private final Set<BlockPos> pending = new LinkedHashSet<>();
+    private final Multimap<ChunkPos, BlockPos> unloaded = HashMultimap.create();
 
     public SignManager(FactionsTopPlugin plugin) {
         this.plugin = plugin;
@@ -39,6 +41,11 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
     public void setSigns(Multimap<Integer, BlockPos> signs) {
         this.signs.clear();
         this.signs.putAll(signs);
+        signRanks.clear();
+        signs.entries().forEach(entry -> signRanks.put(entry.getValue(), entry.getKey()));
+        unloaded.clear();
+        pending.clear();
+        pending.addAll(signs.values());
     }
 
     @Override
@@ -54,39 +61,54 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
         HandlerList.unregisterAll(this);
     }
 
+    /**
+     * Queues every sign displaying a rank to be refreshed.
+     *
+     * @param rank the zero based rank.
+     */
+    public void updateRank(int rank) {
+        pending.addAll(signs.get(rank));
+    }
+
     @Override
     public void run() {
-        List<FactionWorth> factions = plugin.getWorthManager().getOrderedFactions();
-
-        for (Map.Entry<Integer, Collection<BlockPos>> entry : signs.asMap().entrySet()) {
-            // Do nothing if rank is higher than factions size.
-            if (entry.getKey() >= factions.size()) continue;
-
-            // Get the faction worth.
-            FactionWorth worth = factions.get(entry.getKey());
-
-            // Do not update signs if previous value is unchanged.
-            double previousWorth = previous.getOrDefault(entry.getKey(), 0d);
-            if (previousWorth == worth.getTotalWorth()) {
+        List<FactionWorth> factions = plugin.getWorthManager().getRankingSnapshot().getFactions();
+        int limit = plugin.getSettings().getSignUpdateLimit();
+        Iterator<BlockPos> it = pending.iterator();
+
+        while (limit > 0 && it.hasNext()) {
+            BlockPos pos = it.next();
+            it.remove();
+
+            // Leave signs in unloaded chunks until their chunk loads.
+            World world = plugin.getServer().getWorld(pos.getWorld());
+            if (world != null && !world.isChunkLoaded(pos.getX() >> 4, pos.getZ() >> 4)) {
+                unloaded.put(ChunkPos.of(pos.getWorld(), pos.getX() >> 4, pos.getZ() >> 4), pos);
                 continue;
             }
 
-            previous.put(entry.getKey(), worth.getTotalWorth());
+            limit--;
+            BlockState state = world == null ? null : world.getBlockAt(pos.getX(), pos.getY(), pos.getZ()).getState();
+            if (!(state instanceof Sign)) {
+                removeSign(pos);
+                continue;
+            }
 
-            // Update all signs.
-            for (BlockPos pos : entry.getValue()) {
-                Block block = pos.getBlock(plugin.getServer());
-                if (block == null || !(block.getState() instanceof Sign)) {
-                    plugin.getServer().getScheduler().runTask(plugin, () -> removeSign(pos));
-                    continue;
-                }
+            Sign sign = (Sign) state;
+            int rank = signRanks.get(pos);
+            setLines(sign, rank < factions.size() ? factions.get(rank) : null);
+            sign.update();
+        }
+    }
 
-                Sign sign = (Sign) block.getState();
-                sign.setLine(2, worth.getName());
-                sign.setLine(3, plugin.getSettings().getCurrencyFormat().format(worth.getTotalWorth()));
-                sign.update();
-            }
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void updateLoadedSigns(ChunkLoadEvent event) {
+        if (unloaded.isEmpty()) {
+            return;
         }
+
+        Collection<BlockPos> loaded = unloaded.removeAll(ChunkPos.of(event.getChunk()));
+        pending.addAll(loaded);
     }
 
     @EventHandler(priority = EventPriority.HIGH, ignoreCancelled = true)
@@ -126,6 +148,10 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
     }
 
     private void saveSign(BlockPos pos, int rank) {
+        Integer previousRank = signRanks.put(pos, rank);
+        if (previousRank != null) {
+            signs.remove(previousRank, pos);
+        }
         signs.put(rank, pos);
         plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
@@ -141,7 +167,7 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
     public void unregisterSign(BlockBreakEvent event) {
         // Do nothing if block is not a registered sign.
         BlockPos pos = BlockPos.of(event.getBlock());
-        if (!signs.containsValue(pos)) {
+        if (!signRanks.containsKey(pos)) {
             return;
         }
 
@@ -159,8 +185,23 @@ public class SignManager extends BukkitRunnable implements PluginService, Listen
         removeSign(pos);
     }
 
+    private void setLines(Sign sign, FactionWorth worth) {
+        if (worth != null) {
+            sign.setLine(2, worth.getName());
+            sign.setLine(3, plugin.getSettings().getCurrencyFormat().format(worth.getTotalWorth()));
+        } else {
+            sign.setLine(2, "-");
+            sign.setLine(3, "$0.00");
+        }
+    }
+
     private void removeSign(BlockPos pos) {
-        signs.values().remove(pos);
+        Integer rank = signRanks.remove(pos);
+        if (rank != null) {
+            signs.remove(rank, pos);
+        }
+        pending.remove(pos);
+        unloaded.values().remove(pos);
         plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
             try {
                 plugin.getDatabaseManager().removeSign(pos);
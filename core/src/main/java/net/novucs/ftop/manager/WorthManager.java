@@ -7,10 +7,17 @@ import net.novucs.ftop.PluginService;
 import net.novucs.ftop.RecalculateReason;
 import net.novucs.ftop.WorthType;
 import net.novucs.ftop.entity.ChunkPos;
+import net.novucs.ftop.entity.ChunkScanResult;
 import net.novucs.ftop.entity.ChunkWorth;
 import net.novucs.ftop.entity.FactionWorth;
+import net.novucs.ftop.entity.RankingSnapshot;
+import net.novucs.ftop.util.IntSet;
+import net.novucs.ftop.util.LongObjectMap;
+import net.novucs.ftop.util.OrderStatisticTree;
 import org.bukkit.Chunk;
 import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Chest;
 import org.bukkit.block.CreatureSpawner;
@@ -19,15 +26,20 @@ import org.bukkit.inventory.ItemStack;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 public final class WorthManager extends BukkitRunnable implements PluginService {
 
     private final FactionsTopPlugin plugin;
-    private final Map<ChunkPos, ChunkWorth> chunks = new HashMap<>();
+    private final List<LongObjectMap<ChunkWorth>> chunks = new ArrayList<>();
     private final Map<String, FactionWorth> factions = new HashMap<>();
-    private final List<FactionWorth> orderedFactions = new LinkedList<>();
-    private final List<FactionWorth> sortQueue = new LinkedList<>();
+    private final OrderStatisticTree<FactionWorth> orderedFactions = new OrderStatisticTree<>();
+    private final Set<FactionWorth> sortQueue = new LinkedHashSet<>();
+    private final Map<String, FactionWorth> snapshotCopies = new HashMap<>();
+    private final Set<String> snapshotChanges = new HashSet<>();
+    private volatile RankingSnapshot rankingSnapshot = RankingSnapshot.EMPTY;
+    private boolean snapshotDirty;
     private final Table<ChunkPos, WorthType, Double> recalculateQueue = HashBasedTable.create();
     private final Table<ChunkPos, Material, Integer> materialsQueue = HashBasedTable.create();
 
@@ -36,12 +48,34 @@ public final class WorthManager extends BukkitRunnable implements PluginService
     }
 
     /**
-     * Returns an unmodifiable view of the ordered factions.
+     * Returns an unmodifiable, random access view of the ordered factions.
+     * The view is live and must only be used on the main thread, see
+     * {@link #getRankingSnapshot()} for other threads.
      *
      * @return the ordered factions.
      */
     public List<FactionWorth> getOrderedFactions() {
-        return Collections.unmodifiableList(orderedFactions);
+        return orderedFactions.asList();
+    }
+
+    /**
+     * Gets the latest published ranking, safe to be read from any thread.
+     * A new snapshot is published at most once per tick.
+     *
+     * @return the ranking snapshot.
+     */
+    public RankingSnapshot getRankingSnapshot() {
+        return rankingSnapshot;
+    }
+
+    /**
+     * Gets the zero based rank of a faction.
+     *
+     * @param factionId the faction ID.
+     * @return the rank, or -1 if the faction is not ranked.
+     */
+    public int getRank(String factionId) {
+        return orderedFactions.rankOf(factionId);
     }
 
     /**
@@ -65,36 +99,95 @@ public final class WorthManager extends BukkitRunnable implements PluginService
 
     @Override
     public void run() {
-        ListIterator<FactionWorth> it = sortQueue.listIterator();
+        // Reposition each modified faction once, spilling any remaining work
+        // over to the next tick once the time budget has been used.
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(plugin.getSettings().getSortMillisPerTick());
+        Iterator<FactionWorth> it = sortQueue.iterator();
         while (it.hasNext()) {
             sort(it.next());
             it.remove();
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+        }
+
+        if (snapshotDirty) {
+            publishSnapshot();
         }
     }
 
-    public Map<ChunkPos, ChunkWorth> getChunks() {
-        return chunks;
+    /**
+     * Publishes a new ranking snapshot, only factions repositioned or changed
+     * since the last snapshot are copied again.
+     */
+    private void publishSnapshot() {
+        List<FactionWorth> ordered = new ArrayList<>(orderedFactions.size());
+        orderedFactions.forEach(factionWorth -> {
+            String factionId = factionWorth.getFactionId();
+            FactionWorth copy = snapshotCopies.get(factionId);
+
+            if (copy == null || snapshotChanges.contains(factionId)) {
+                copy = new FactionWorth(factionWorth);
+                snapshotCopies.put(factionId, copy);
+            }
+
+            ordered.add(copy);
+        });
+
+        snapshotChanges.clear();
+        snapshotDirty = false;
+
+        // Unchanged factions share copies, so any rank now holding another
+        // copy has either moved or changed worth.
+        List<FactionWorth> previous = rankingSnapshot.getFactions();
+        for (int rank = 0; rank < Math.max(previous.size(), ordered.size()); rank++) {
+            if (rank >= previous.size() || rank >= ordered.size() || previous.get(rank) != ordered.get(rank)) {
+                plugin.getSignManager().updateRank(rank);
+            }
+        }
+
+        rankingSnapshot = new RankingSnapshot(rankingSnapshot.getVersion() + 1, ordered);
+    }
+
+    /**
+     * Marks a faction to be copied into the next ranking snapshot.
+     *
+     * @param factionId the faction ID.
+     */
+    private void markSnapshot(String factionId) {
+        snapshotChanges.add(factionId);
+        snapshotDirty = true;
     }
 
     public void loadChunks(Map<ChunkPos, ChunkWorth> chunks) {
         this.chunks.clear();
-        this.chunks.putAll(chunks);
+        for (Map.Entry<ChunkPos, ChunkWorth> chunk : chunks.entrySet()) {
+            ChunkPos pos = chunk.getKey();
+            getChunkTable(pos.getWorldId()).put(pos.getKey(), chunk.getValue());
+        }
     }
 
     public void updateAllFactions() {
         factions.clear();
-        for (Map.Entry<ChunkPos, ChunkWorth> chunk : chunks.entrySet()) {
-            FactionWorth worth = getFactionWorth(chunk.getKey());
-            if (worth != null) {
-                worth.addAll(chunk.getValue());
-            }
+        sortQueue.clear();
+        for (int worldId = 0; worldId < chunks.size(); worldId++) {
+            String world = ChunkPos.getWorldName(worldId);
+            chunks.get(worldId).forEach((chunkWorth, key) -> {
+                String factionId = plugin.getFactionsHook().getFactionAt(world, ChunkPos.unpackX(key), ChunkPos.unpackZ(key));
+                FactionWorth worth = getFactionWorth(factionId);
+                if (worth != null) {
+                    worth.addAll(chunkWorth);
+                }
+            });
         }
 
         if (plugin.getSettings().isEnabled(WorthType.PLAYER_BALANCE)) {
+            // Member balances are summed from the cache, any missing are
+            // added once refreshed.
+            Map<String, Double> balances = plugin.getBalanceManager().getTotalBalances(factions.keySet());
             for (FactionWorth faction : factions.values()) {
-                List<UUID> members = plugin.getFactionsHook().getMembers(faction.getFactionId());
-                double balance = plugin.getEconomyHook().getTotalBalance(members);
-                faction.addWorth(WorthType.PLAYER_BALANCE, balance);
+                faction.addWorth(WorthType.PLAYER_BALANCE, balances.get(faction.getFactionId()));
             }
         }
 
@@ -106,8 +199,11 @@ public final class WorthManager extends BukkitRunnable implements PluginService
         }
 
         orderedFactions.clear();
-        orderedFactions.addAll(factions.values().stream().sorted().collect(Collectors.toList()));
-        plugin.getPersistenceTask().queue(orderedFactions);
+        snapshotCopies.clear();
+        for (FactionWorth faction : factions.values()) {
+            add(faction);
+        }
+        plugin.getPersistenceTask().queue(factions.values());
     }
 
     /**
@@ -116,19 +212,8 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      * @param factionWorth the profile to add.
      */
     private void add(FactionWorth factionWorth) {
-        // Start from end of the list.
-        ListIterator<FactionWorth> it = orderedFactions.listIterator(orderedFactions.size());
-
-        // Locate where to insert the new element.
-        while (it.hasPrevious()) {
-            if (it.previous().compareTo(factionWorth) >= 0) {
-                it.next();
-                break;
-            }
-        }
-
-        // Insert ordered value.
-        it.add(factionWorth);
+        orderedFactions.put(factionWorth.getFactionId(), factionWorth.getTotalWorth(), factionWorth);
+        markSnapshot(factionWorth.getFactionId());
     }
 
     /**
@@ -138,38 +223,13 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      * @param factionWorth the profile to sort.
      */
     private void sort(FactionWorth factionWorth) {
-        // Remove the current value.
-        ListIterator<FactionWorth> it = orderedFactions.listIterator();
-        if (!remove(factionWorth, it)) {
+        // Do nothing if this profile has since been removed or replaced.
+        if (orderedFactions.get(factionWorth.getFactionId()) != factionWorth) {
             return;
         }
 
-        // Locate where the value should be ordered.
-        while (it.hasPrevious()) {
-            if (it.previous().compareTo(factionWorth) <= 0) {
-                break;
-            }
-        }
-
-        while (it.hasNext()) {
-            if (it.next().compareTo(factionWorth) >= 0) {
-                it.previous();
-                break;
-            }
-        }
-
-        // Add back to list with the correct position.
-        it.add(factionWorth);
-    }
-
-    private <E> boolean remove(E element, ListIterator<E> it) {
-        while (it.hasNext()) {
-            if (it.next() == element) {
-                it.remove();
-                return true;
-            }
-        }
-        return false;
+        orderedFactions.update(factionWorth.getFactionId(), factionWorth.getTotalWorth());
+        markSnapshot(factionWorth.getFactionId());
     }
 
     /**
@@ -179,12 +239,27 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      * @return the chunk profile.
      */
     private ChunkWorth getChunkWorth(ChunkPos pos) {
-        return chunks.compute(pos, (k, v) -> {
-            if (v == null) {
-                v = new ChunkWorth();
-            }
-            return v;
-        });
+        LongObjectMap<ChunkWorth> table = getChunkTable(pos.getWorldId());
+        ChunkWorth chunkWorth = table.get(pos.getKey());
+        if (chunkWorth == null) {
+            chunkWorth = new ChunkWorth();
+            table.put(pos.getKey(), chunkWorth);
+        }
+        return chunkWorth;
+    }
+
+    /**
+     * Gets the table of chunk worth profiles for a world, keyed by the packed
+     * chunk coordinates.
+     *
+     * @param worldId the interned world ID.
+     * @return the chunk table.
+     */
+    private LongObjectMap<ChunkWorth> getChunkTable(int worldId) {
+        while (chunks.size() <= worldId) {
+            chunks.add(new LongObjectMap<>());
+        }
+        return chunks.get(worldId);
     }
 
     /**
@@ -210,13 +285,13 @@ public final class WorthManager extends BukkitRunnable implements PluginService
             return null;
         }
 
-        return factions.compute(factionId, (k, v) -> {
-            if (v == null) {
-                v = new FactionWorth(k, plugin.getFactionsHook().getFactionName(k));
-                add(v);
-            }
-            return v;
-        });
+        FactionWorth factionWorth = factions.get(factionId);
+        if (factionWorth == null) {
+            factionWorth = new FactionWorth(factionId, plugin.getFactionsHook().getFactionName(factionId));
+            factions.put(factionId, factionWorth);
+            add(factionWorth);
+        }
+        return factionWorth;
     }
 
     /**
@@ -251,6 +326,55 @@ public final class WorthManager extends BukkitRunnable implements PluginService
         }
     }
 
+    /**
+     * Sets the scanned block worth of some sections of a chunk, the chunk
+     * block worth and materials become the total of every section.
+     *
+     * @param result the scan result.
+     */
+    public void setSections(ChunkScanResult result) {
+        // Do nothing if faction worth is null.
+        ChunkPos pos = result.getPos();
+        FactionWorth factionWorth = getFactionWorth(pos);
+        if (factionWorth == null) return;
+
+        ChunkWorth chunkWorth = getChunkWorth(pos);
+        chunkWorth.setSections(result.getSections(), result.getWorth(), result.getMaterials(), result.getRevision());
+
+        // Stale sections were discarded, keep the current worth until the
+        // chunk has been scanned in full.
+        if (!chunkWorth.hasSections()) {
+            set(pos, WorthType.BLOCK, chunkWorth.getWorth(WorthType.BLOCK));
+            materialsQueue.row(pos).clear();
+            plugin.getPersistenceTask().queue(pos, chunkWorth);
+            return;
+        }
+
+        set(pos, WorthType.BLOCK, chunkWorth.getSectionWorth());
+        setMaterials(pos, chunkWorth.getSectionMaterials());
+    }
+
+    /**
+     * Gets when a chunk was last scanned.
+     *
+     * @param pos the chunk position.
+     * @return the epoch millis of the last scan, or 0 if never scanned.
+     */
+    public long getLastScan(ChunkPos pos) {
+        ChunkWorth chunkWorth = getChunkTable(pos.getWorldId()).get(pos.getKey());
+        return chunkWorth == null ? 0 : chunkWorth.getLastScan();
+    }
+
+    public void setLastScan(ChunkPos pos, long lastScan) {
+        // Do nothing if faction worth is null.
+        FactionWorth factionWorth = getFactionWorth(pos);
+        if (factionWorth == null) return;
+
+        ChunkWorth chunkWorth = getChunkWorth(pos);
+        chunkWorth.setLastScan(lastScan);
+        plugin.getPersistenceTask().queue(pos, chunkWorth);
+    }
+
     public void setMaterials(ChunkPos pos, Map<Material, Integer> materials) {
         // Do nothing if faction worth is null.
         FactionWorth factionWorth = getFactionWorth(pos);
@@ -258,7 +382,7 @@ public final class WorthManager extends BukkitRunnable implements PluginService
 
         // Update all stats with the new chunk data.
         ChunkWorth chunkWorth = getChunkWorth(pos);
-        factionWorth.removeMaterials(chunkWorth.getMaterials());
+        factionWorth.removeMaterials(chunkWorth.getMaterialCounter());
         chunkWorth.setMaterials(materials);
         factionWorth.addMaterials(materials);
 
@@ -281,11 +405,52 @@ public final class WorthManager extends BukkitRunnable implements PluginService
 
         // Update all stats with the new chunk data.
         ChunkWorth chunkWorth = getChunkWorth(pos);
-        factionWorth.removeSpawners(chunkWorth.getSpawners());
+        factionWorth.removeSpawners(chunkWorth.getSpawnerCounter());
         chunkWorth.setSpawners(spawners);
         factionWorth.addSpawners(spawners);
     }
 
+    /**
+     * Clears the spawner and chest worth of a chunk known to contain neither.
+     *
+     * @param pos the chunk position.
+     */
+    public void clearTileWorth(ChunkPos pos) {
+        if (plugin.getSettings().isEnabled(WorthType.SPAWNER)) {
+            set(pos, WorthType.SPAWNER, 0);
+        }
+
+        if (plugin.getSettings().isEnabled(WorthType.CHEST)) {
+            set(pos, WorthType.CHEST, 0);
+        }
+
+        setSpawners(pos, Collections.emptyMap());
+    }
+
+    /**
+     * Schedules an unloaded chunk to be recalculated from its region file.
+     *
+     * @param world    the world.
+     * @param pos      the chunk position.
+     * @param reason   the reason for recalculating.
+     * @param fallback called from the scanning thread with chunks which
+     *                 must be loaded to be recalculated.
+     */
+    public void recalculate(World world, ChunkPos pos, RecalculateReason reason, Consumer<ChunkPos> fallback) {
+        if (getFactionWorth(pos) == null) return;
+
+        // Do not recalculate the chunk value if not within the recalculation period.
+        ChunkWorth chunkWorth = getChunkWorth(pos);
+        if (chunkWorth.getNextRecalculation() >= System.currentTimeMillis() &&
+                !plugin.getSettings().isBypassRecalculateDelay(reason) ||
+                !plugin.getSettings().isPerformRecalculate(reason) ||
+                !plugin.getChunkWorthTask().reserve()) {
+            return;
+        }
+
+        plugin.getChunkWorthTask().queue(world, pos, fallback);
+    }
+
     /**
      * Adds worth to a chunk.
      *
@@ -296,18 +461,47 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      */
     public void add(Chunk chunk, RecalculateReason reason, WorthType worthType, double worth,
                     Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
+        add(chunk, 0, reason, worthType, worth, materials, spawners);
+    }
+
+    /**
+     * Adds worth to the chunk of a changed block, only the section holding
+     * the block is rescanned.
+     *
+     * @param block     the changed block.
+     * @param reason    the reason.
+     * @param worthType the worth type.
+     * @param worth     the worth value.
+     */
+    public void add(Block block, RecalculateReason reason, WorthType worthType, double worth,
+                    Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
+        add(block.getChunk(), ChunkWorth.getSection(block.getY()), reason, worthType, worth, materials, spawners);
+    }
+
+    /**
+     * Adds worth to a chunk, only the changed sections are rescanned.
+     *
+     * @param chunk     the chunk.
+     * @param sections  the bitmask of changed sections.
+     * @param reason    the reason.
+     * @param worthType the worth type.
+     * @param worth     the worth value.
+     */
+    public void add(Chunk chunk, int sections, RecalculateReason reason, WorthType worthType, double worth,
+                    Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
         // Do nothing if worth type is disabled or worth is nothing.
         if (!plugin.getSettings().isEnabled(worthType) || worth == 0) {
             return;
         }
 
         // Do nothing if faction worth is null.
-        ChunkPos pos = ChunkPos.of(chunk);
-        FactionWorth factionWorth = getFactionWorth(pos);
+        FactionWorth factionWorth = getFactionWorth(plugin.getFactionsHook().getFactionAt(chunk));
         if (factionWorth == null) return;
 
         // Update all stats with the new chunk data.
+        ChunkPos pos = ChunkPos.of(chunk);
         ChunkWorth chunkWorth = getChunkWorth(pos);
+        chunkWorth.markDirty(sections);
         chunkWorth.addWorth(worthType, worth);
         chunkWorth.addMaterials(materials);
         chunkWorth.addSpawners(spawners);
@@ -343,9 +537,9 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      * @param reason the reason for recalculating.
      */
     public void recalculate(Chunk chunk, RecalculateReason reason) {
-        ChunkPos pos = ChunkPos.of(chunk);
-        if (getFactionWorth(pos) == null) return;
+        if (getFactionWorth(plugin.getFactionsHook().getFactionAt(chunk)) == null) return;
 
+        ChunkPos pos = ChunkPos.of(chunk);
         ChunkWorth chunkWorth = getChunkWorth(pos);
         recalculate(chunkWorth, pos, chunk, reason);
     }
@@ -364,7 +558,7 @@ public final class WorthManager extends BukkitRunnable implements PluginService
         if (chunkWorth.getNextRecalculation() >= System.currentTimeMillis() &&
                 !plugin.getSettings().isBypassRecalculateDelay(reason) ||
                 !plugin.getSettings().isPerformRecalculate(reason) ||
-                plugin.getSettings().getChunkQueueSize() <= plugin.getChunkWorthTask().getQueueSize()) {
+                !plugin.getChunkWorthTask().reserve()) {
             FactionWorth factionWorth = getFactionWorth(pos);
             if (factionWorth != null) {
                 plugin.getPersistenceTask().queue(pos, chunkWorth);
@@ -376,48 +570,151 @@ public final class WorthManager extends BukkitRunnable implements PluginService
         // Next recalculation is scheduled once the chunk worth is re-set.
         chunkWorth.setNextRecalculation(Long.MAX_VALUE);
 
+        // Recalculations are scanned straight away, so their main thread
+        // cost is counted towards the recalculation time budget.
+        if (reason == RecalculateReason.COMMAND) {
+            scan(chunkWorth, pos, chunk, reason);
+            return;
+        }
+
         // Schedule this chunk to be recalculated on a separate thread.
         // Occasionally block updates are not updated in the chunk on the
         // same tick, getting the chunk snapshot in the next tick fixes
         // this issue.
-        plugin.getServer().getScheduler().runTask(plugin, () -> {
-            // Clear the recalculate queue in the event of multiple block
-            // changes in the same tick.
-            recalculateQueue.row(pos).clear();
+        plugin.getServer().getScheduler().runTask(plugin, () -> scan(chunkWorth, pos, chunk, reason));
+    }
+
+    /**
+     * Updates the spawner and chest worth of a chunk and queues its changed
+     * sections to be scanned.
+     *
+     * @param chunkWorth the worth associated with this chunk.
+     * @param pos        the chunk position.
+     * @param chunk      the chunk.
+     * @param reason     the reason for recalculating.
+     */
+    private void scan(ChunkWorth chunkWorth, ChunkPos pos, Chunk chunk, RecalculateReason reason) {
+        // Clear the recalculate queue in the event of multiple block
+        // changes in the same tick.
+        recalculateQueue.row(pos).clear();
+
+        // Update the chunk spawner worth on the main thread, unfortunately
+        // there is no better method of doing this. Same with chests.
+        Map<EntityType, Integer> spawners = new EnumMap<>(EntityType.class);
+        Map<Material, Integer> materials = new EnumMap<>(Material.class);
 
-            // Update the chunk spawner worth on the main thread, unfortunately
-            // there is no better method of doing this. Same with chests.
-            Map<EntityType, Integer> spawners = new EnumMap<>(EntityType.class);
-            Map<Material, Integer> materials = new EnumMap<>(Material.class);
+        if (plugin.getSettings().isEnabled(WorthType.SPAWNER) || plugin.getSettings().isEnabled(WorthType.CHEST)) {
+            List<BlockState> tiles = getTiles(chunk, chunkWorth, !isSectionLocal(reason));
 
             if (plugin.getSettings().isEnabled(WorthType.SPAWNER)) {
-                set(pos, WorthType.SPAWNER, getSpawnerWorth(chunk, spawners));
+                set(pos, WorthType.SPAWNER, getSpawnerWorth(tiles, spawners));
             }
 
             if (plugin.getSettings().isEnabled(WorthType.CHEST)) {
-                set(pos, WorthType.CHEST, getChestWorth(chunk, materials, spawners));
+                set(pos, WorthType.CHEST, getChestWorth(tiles, materials, spawners));
             }
+        }
 
-            setSpawners(pos, spawners);
-            materialsQueue.row(pos).putAll(materials);
+        setSpawners(pos, spawners);
+        materialsQueue.row(pos).putAll(materials);
+
+        // Block changes only affect their own section, anything else may
+        // have changed the entire chunk.
+        int sections = chunkWorth.takeDirtySections(plugin.getSettings().getRevision());
+        if (!isSectionLocal(reason)) {
+            sections = ChunkWorth.ALL_SECTIONS;
+        }
+
+        plugin.getChunkWorthTask().queue(chunk, sections);
+    }
+
+    private boolean isSectionLocal(RecalculateReason reason) {
+        switch (reason) {
+            case BREAK:
+            case PLACE:
+            case EXPLODE:
+            case CHEST:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Gets the spawners and chests of a chunk. The chunk is indexed from all
+     * its tile entities when first recalculated or when it may have changed
+     * without events, otherwise only the indexed blocks are visited.
+     *
+     * @param chunk      the chunk.
+     * @param chunkWorth the worth associated with this chunk.
+     * @param reindex    true to rebuild the index.
+     * @return the spawner and chest block states.
+     */
+    private List<BlockState> getTiles(Chunk chunk, ChunkWorth chunkWorth, boolean reindex) {
+        List<BlockState> tiles = new ArrayList<>();
+        IntSet index = chunkWorth.getTiles();
+
+        if (index == null || reindex) {
+            index = new IntSet();
+            for (BlockState blockState : chunk.getTileEntities()) {
+                if (blockState instanceof CreatureSpawner || blockState instanceof Chest) {
+                    tiles.add(blockState);
+                    index.add(ChunkWorth.packTile(blockState.getX(), blockState.getY(), blockState.getZ()));
+                }
+            }
+            chunkWorth.setTiles(index);
+            return tiles;
+        }
+
+        index.forEach(tile -> {
+            BlockState blockState = chunk.getBlock(ChunkWorth.unpackTileX(tile), ChunkWorth.unpackTileY(tile),
+                    ChunkWorth.unpackTileZ(tile)).getState();
 
-            plugin.getChunkWorthTask().queue(chunk.getChunkSnapshot());
+            // Blocks replaced without an event are dropped once reindexed.
+            if (blockState instanceof CreatureSpawner || blockState instanceof Chest) {
+                tiles.add(blockState);
+            }
         });
+        return tiles;
+    }
+
+    /**
+     * Updates the spawner and chest index of a chunk once a spawner or chest
+     * has been placed or removed.
+     *
+     * @param block   the spawner or chest.
+     * @param removed true if the block was removed.
+     */
+    public void updateTile(Block block, boolean removed) {
+        ChunkPos pos = ChunkPos.of(block.getChunk());
+        ChunkWorth chunkWorth = getChunkTable(pos.getWorldId()).get(pos.getKey());
+
+        // Chunks yet to be indexed are indexed in full once recalculated.
+        if (chunkWorth == null || chunkWorth.getTiles() == null) {
+            return;
+        }
+
+        int tile = ChunkWorth.packTile(block.getX(), block.getY(), block.getZ());
+        if (removed) {
+            chunkWorth.getTiles().remove(tile);
+        } else {
+            chunkWorth.getTiles().add(tile);
+        }
     }
 
     /**
      * Calculates the spawner worth of a chunk.
      *
-     * @param chunk    the chunk.
+     * @param tiles    the spawners and chests of the chunk.
      * @param spawners the spawner totals to add to.
      * @return the chunk worth in spawners.
      */
-    private double getSpawnerWorth(Chunk chunk, Map<EntityType, Integer> spawners) {
+    private double getSpawnerWorth(List<BlockState> tiles, Map<EntityType, Integer> spawners) {
         int count;
         double worth = 0;
         double blockPrice;
 
-        for (BlockState blockState : chunk.getTileEntities()) {
+        for (BlockState blockState : tiles) {
             if (!(blockState instanceof CreatureSpawner)) {
                 continue;
             }
@@ -438,18 +735,18 @@ public final class WorthManager extends BukkitRunnable implements PluginService
     /**
      * Calculates the chest worth of a chunk.
      *
-     * @param chunk     the chunk.
+     * @param tiles     the spawners and chests of the chunk.
      * @param materials the material totals to add to.
      * @param spawners  the spawner totals to add to.
      * @return the chunk worth in materials.
      */
-    private double getChestWorth(Chunk chunk, Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
+    private double getChestWorth(List<BlockState> tiles, Map<Material, Integer> materials, Map<EntityType, Integer> spawners) {
         int count;
         double worth = 0;
         double materialPrice;
         EntityType spawnerType;
 
-        for (BlockState blockState : chunk.getTileEntities()) {
+        for (BlockState blockState : tiles) {
             if (!(blockState instanceof Chest)) {
                 continue;
             }
@@ -511,11 +808,11 @@ public final class WorthManager extends BukkitRunnable implements PluginService
             }
 
             if (unclaimed) {
-                factionWorth.removeMaterials(chunkWorth.getMaterials());
-                factionWorth.removeSpawners(chunkWorth.getSpawners());
+                factionWorth.removeMaterials(chunkWorth.getMaterialCounter());
+                factionWorth.removeSpawners(chunkWorth.getSpawnerCounter());
             } else {
-                factionWorth.addMaterials(chunkWorth.getMaterials());
-                factionWorth.addSpawners(chunkWorth.getSpawners());
+                factionWorth.addMaterials(chunkWorth.getMaterialCounter());
+                factionWorth.addSpawners(chunkWorth.getSpawnerCounter());
             }
 
             // Schedule chunk for recalculation.
@@ -559,6 +856,7 @@ public final class WorthManager extends BukkitRunnable implements PluginService
         FactionWorth factionWorth = factions.getOrDefault(factionId, null);
         if (factionWorth != null) {
             factionWorth.setName(newName);
+            markSnapshot(factionId);
         }
     }
 
@@ -568,15 +866,10 @@ public final class WorthManager extends BukkitRunnable implements PluginService
      * @param factionId the ID of the faction to remove.
      */
     public void remove(String factionId) {
-        FactionWorth factionWorth = factions.remove(factionId);
-
-        // Optimised removal, factions lower down the list are more likely to be disbanded.
-        ListIterator<FactionWorth> it = orderedFactions.listIterator(orderedFactions.size());
-        while (it.hasPrevious()) {
-            if (it.previous() == factionWorth) {
-                it.remove();
-                break;
-            }
-        }
+        factions.remove(factionId);
+        orderedFactions.remove(factionId);
+        snapshotCopies.remove(factionId);
+        snapshotChanges.remove(factionId);
+        snapshotDirty = true;
     }
 }
@@ -1,82 +1,391 @@
 package net.novucs.ftop.task;
 
 import net.novucs.ftop.FactionsTopPlugin;
-import net.novucs.ftop.WorthType;
+import net.novucs.ftop.RecalculateReason;
 import net.novucs.ftop.entity.ChunkPos;
+import net.novucs.ftop.entity.ChunkScanResult;
+import net.novucs.ftop.entity.ChunkWorth;
+import net.novucs.ftop.util.AnvilChunkReader;
+import net.novucs.ftop.util.RegionFile;
+import org.bukkit.Chunk;
 import org.bukkit.ChunkSnapshot;
 import org.bukkit.Material;
+import org.bukkit.World;
 
-import java.util.EnumMap;
-import java.util.Map;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 
-public class ChunkWorthTask extends Thread {
+public class ChunkWorthTask implements Runnable {
+
+    private static final int MAX_REGION_FILES = 32;
 
     private final FactionsTopPlugin plugin;
-    private final BlockingQueue<ChunkSnapshot> queue = new LinkedBlockingQueue<>();
+    private final AtomicInteger queueSize = new AtomicInteger();
+    private final Queue<ChunkScanResult> results = new ConcurrentLinkedQueue<>();
+    private final Map<File, RegionFile> regionFiles = Collections.synchronizedMap(new RegionFileCache());
+    private ForkJoinPool pool;
+    private int taskId = -1;
 
     public ChunkWorthTask(FactionsTopPlugin plugin) {
-        super("factions-top-chunk-task");
         this.plugin = plugin;
     }
 
-    public void queue(ChunkSnapshot snapshot) {
-        queue.add(snapshot);
+    public void start() {
+        int threads = plugin.getSettings().getChunkScanThreads();
+        pool = new ForkJoinPool(threads, forkJoinPool -> {
+            ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+            thread.setName("factions-top-chunk-task-" + thread.getPoolIndex());
+            return thread;
+        }, null, true);
+        taskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1, 1).getTaskId();
     }
 
-    public int getQueueSize() {
-        return queue.size();
+    public void terminate() {
+        // Do nothing if the plugin was disabled before starting.
+        if (pool == null) {
+            return;
+        }
+
+        pool.shutdownNow();
+        try {
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ignore) {
+        }
+
+        // Apply everything scanned before shutdown so it is persisted.
+        if (taskId != -1) {
+            plugin.getServer().getScheduler().cancelTask(taskId);
+        }
+        apply(Long.MAX_VALUE);
+        clearRegionFiles();
     }
 
-    @Override
-    public void run() {
-        while (!isInterrupted()) {
-            ChunkSnapshot snapshot;
+    /**
+     * Releases every cached region file, should be called once a batch of
+     * unloaded chunks has been scanned.
+     */
+    public void clearRegionFiles() {
+        regionFiles.clear();
+    }
+
+    /**
+     * Reserves space for a chunk to be scanned, the reservation is held until
+     * the scanned result has been applied.
+     *
+     * @return false if the scanners are at capacity.
+     */
+    public boolean reserve() {
+        int limit = plugin.getSettings().getChunkQueueSize();
+        int size;
+        do {
+            size = queueSize.get();
+            if (size >= limit) {
+                return false;
+            }
+        } while (!queueSize.compareAndSet(size, size + 1));
+        return true;
+    }
+
+    /**
+     * Queues sections of a loaded chunk to be scanned, space must first be
+     * reserved.
+     *
+     * @param chunk    the chunk.
+     * @param sections the bitmask of sections to scan.
+     */
+    public void queue(Chunk chunk, int sections) {
+        int revision = plugin.getSettings().getRevision();
+        long queued = System.currentTimeMillis();
+
+        // No blocks have changed, the chunk is made up of its known sections.
+        if (sections == 0) {
+            results.add(new ChunkScanResult(ChunkPos.of(chunk), 0, new double[ChunkWorth.SECTIONS],
+                    newMaterials(), revision, false, queued));
+            return;
+        }
+
+        ChunkSnapshot snapshot = chunk.getChunkSnapshot();
+        pool.execute(() -> {
             try {
-                snapshot = queue.take();
-            } catch (InterruptedException e) {
-                interrupt();
-                break;
+                results.add(scan(snapshot, sections, revision, queued));
+            } catch (RuntimeException e) {
+                queueSize.decrementAndGet();
+                plugin.getLogger().log(Level.SEVERE, "Failed to scan chunk", e);
             }
+        });
+    }
 
-            ChunkPos pos = ChunkPos.of(snapshot);
-            double worth = 0;
-            double blockPrice;
-            Map<Material, Integer> materials = new EnumMap<>(Material.class);
-
-            for (int y = 0; y < 256; y++) {
-                // ChunkSnapshot#getHighestBlockYAt(x, y) for whatever reason
-                // provides us with a half complete chunk in Spigot v1.10.x. So
-                // we're testing if the chunk section is empty instead.
-                if (snapshot.isSectionEmpty(y >> 4)) {
-                    y += 15;
-                    continue;
-                }
+    public boolean isFull() {
+        return queueSize.get() >= plugin.getSettings().getChunkQueueSize();
+    }
+
+    public int getQueueSize() {
+        return queueSize.get();
+    }
+
+    private ChunkScanResult scan(ChunkSnapshot snapshot, int sections, int revision, long queued) {
+        ChunkPos pos = ChunkPos.of(snapshot);
+        double[] prices = plugin.getSettings().getBlockPriceTable();
+        double[] worth = new double[ChunkWorth.SECTIONS];
+        Map<Material, Integer>[] materials = newMaterials();
+        int[] counts = new int[prices.length];
 
+        for (int section = 0; section < ChunkWorth.SECTIONS; section++) {
+            if ((sections & 1 << section) == 0) {
+                continue;
+            }
+
+            materials[section] = new EnumMap<>(Material.class);
+
+            // Nothing can be worth anything, skip scanning the section.
+            if (prices.length == 0) {
+                continue;
+            }
+
+            // ChunkSnapshot#getHighestBlockYAt(x, y) for whatever reason
+            // provides us with a half complete chunk in Spigot v1.10.x. So
+            // we're testing if the chunk section is empty instead.
+            if (snapshot.isSectionEmpty(section)) {
+                continue;
+            }
+
+            Arrays.fill(counts, 0);
+            int minY = section << 4;
+            for (int y = minY; y < minY + 16; y++) {
                 for (int x = 0; x < 16; x++) {
                     for (int z = 0; z < 16; z++) {
-                        Material material = Material.getMaterial(snapshot.getBlockTypeId(x, y, z));
-                        if (material == null) {
-                            continue;
+                        int id = snapshot.getBlockTypeId(x, y, z);
+                        if (id < counts.length) {
+                            counts[id]++;
                         }
+                    }
+                }
+            }
 
-                        blockPrice = plugin.getSettings().getBlockPrice(material);
-                        worth += blockPrice;
+            worth[section] = tally(counts, prices, materials[section]);
+        }
 
-                        if (blockPrice != 0) {
-                            int count = materials.getOrDefault(material, 0);
-                            materials.put(material, count + 1);
-                        }
-                    }
+        return new ChunkScanResult(pos, sections, worth, materials, revision, false, queued);
+    }
+
+    /**
+     * Tallies the priced blocks of a section.
+     *
+     * @param counts    the count of each block ID.
+     * @param prices    the price of each block ID.
+     * @param materials the material counts to add to.
+     * @return the section worth.
+     */
+    private double tally(int[] counts, double[] prices, Map<Material, Integer> materials) {
+        double worth = 0;
+        for (int id = 0; id < counts.length; id++) {
+            if (counts[id] == 0 || prices[id] == 0) {
+                continue;
+            }
+
+            Material material = Material.getMaterial(id);
+            if (material != null) {
+                worth += prices[id] * counts[id];
+                materials.put(material, counts[id]);
+            }
+        }
+
+        return worth;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Material, Integer>[] newMaterials() {
+        return new Map[ChunkWorth.SECTIONS];
+    }
+
+    /**
+     * Queues an unloaded chunk to be scanned straight from its region file,
+     * space must first be reserved. Chunks which cannot be scanned this way,
+     * such as those containing chests or spawners, are passed to the
+     * fallback instead so they may be loaded.
+     *
+     * @param world    the world.
+     * @param pos      the chunk position.
+     * @param fallback called from the scanning thread with chunks which
+     *                 could not be scanned.
+     */
+    public void queue(World world, ChunkPos pos, Consumer<ChunkPos> fallback) {
+        File regionFolder = getRegionFolder(world);
+        int revision = plugin.getSettings().getRevision();
+        long queued = System.currentTimeMillis();
+        pool.execute(() -> {
+            ChunkScanResult result = null;
+            try {
+                result = scan(regionFolder, pos, revision, queued);
+            } catch (IOException | RuntimeException e) {
+                plugin.getLogger().log(Level.FINE, "Failed to scan " + pos + " from its region file", e);
+            }
+
+            if (result != null) {
+                results.add(result);
+                return;
+            }
+
+            // Hand over the chunk before releasing its space, so it is never
+            // seen as neither queued nor scanned.
+            fallback.accept(pos);
+            queueSize.decrementAndGet();
+        });
+    }
+
+    private ChunkScanResult scan(File regionFolder, ChunkPos pos, int revision, long queued) throws IOException {
+        File file = RegionFile.getFile(regionFolder, pos.getX(), pos.getZ());
+        RegionFile regionFile = getRegionFile(file);
+        if (regionFile == null) {
+            return null;
+        }
+
+        double[] prices = plugin.getSettings().getBlockPriceTable();
+        int[][] counts = new int[ChunkWorth.SECTIONS][prices.length];
+        Set<String> tileEntities = new HashSet<>();
+
+        try (DataInputStream in = regionFile.getChunkData(pos.getX(), pos.getZ())) {
+            if (in == null) {
+                return null;
+            }
+            AnvilChunkReader.read(in, counts, tileEntities);
+        }
+
+        // Spawner and chest worth can only be read from loaded chunks.
+        for (String tileEntity : tileEntities) {
+            if (AnvilChunkReader.isSpawnerOrChest(tileEntity)) {
+                return null;
+            }
+        }
+
+        double[] worth = new double[ChunkWorth.SECTIONS];
+        Map<Material, Integer>[] materials = newMaterials();
+        for (int section = 0; section < ChunkWorth.SECTIONS; section++) {
+            materials[section] = new EnumMap<>(Material.class);
+            worth[section] = tally(counts[section], prices, materials[section]);
+        }
+
+        return new ChunkScanResult(pos, ChunkWorth.ALL_SECTIONS, worth, materials, revision, true, queued);
+    }
+
+    /**
+     * Gets the region file at a path, reopening it should it have grown.
+     *
+     * @param file the region file path.
+     * @return the region file, or null if it does not exist.
+     * @throws IOException if the region file cannot be read.
+     */
+    private RegionFile getRegionFile(File file) throws IOException {
+        RegionFile regionFile = regionFiles.get(file);
+        if (regionFile != null && regionFile.getLength() == file.length()) {
+            return regionFile;
+        }
+
+        if (!file.isFile()) {
+            return null;
+        }
+
+        regionFile = new RegionFile(file);
+        regionFiles.put(file, regionFile);
+        return regionFile;
+    }
+
+    private File getRegionFolder(World world) {
+        switch (world.getEnvironment()) {
+            case NETHER:
+                return new File(world.getWorldFolder(), "DIM-1" + File.separator + "region");
+            case THE_END:
+                return new File(world.getWorldFolder(), "DIM1" + File.separator + "region");
+            default:
+                return new File(world.getWorldFolder(), "region");
+        }
+    }
+
+    @Override
+    public void run() {
+        apply(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(plugin.getSettings().getScanApplyMillisPerTick()));
+    }
+
+    /**
+     * Applies scanned chunks on the main thread until the deadline passes.
+     *
+     * @param deadline the deadline in nanos.
+     */
+    private void apply(long deadline) {
+        ChunkScanResult result;
+        while ((result = results.poll()) != null) {
+            queueSize.decrementAndGet();
+
+            if (!result.isOffline() || isCurrent(result)) {
+                // Region files are only scanned when holding no spawners or
+                // chests, so they are known to be worthless.
+                if (result.isOffline()) {
+                    plugin.getWorthManager().clearTileWorth(result.getPos());
                 }
+
+                plugin.getWorthManager().setSections(result);
+
+                // Only full scans count towards resuming recalculations.
+                if (result.isFull()) {
+                    plugin.getWorthManager().setLastScan(result.getPos(), System.currentTimeMillis());
+                }
+            }
+
+            if (System.nanoTime() >= deadline) {
+                break;
             }
+        }
+    }
+
+    /**
+     * Checks a region file scan is still current. Chunks loaded since being
+     * queued may have changed, so are recalculated from the loaded chunk
+     * instead. Chunks scanned while loaded since being queued may have been
+     * unloaded with their save still pending, so the region file is older.
+     *
+     * @param result the region file scan result.
+     * @return true if the result may be applied.
+     */
+    private boolean isCurrent(ChunkScanResult result) {
+        ChunkPos pos = result.getPos();
+        World world = plugin.getServer().getWorld(pos.getWorld());
+        if (world == null) {
+            return false;
+        }
+
+        if (world.isChunkLoaded(pos.getX(), pos.getZ())) {
+            // Nothing more can be scanned once shutting down.
+            if (plugin.isEnabled()) {
+                plugin.getWorthManager().recalculate(world.getChunkAt(pos.getX(), pos.getZ()), RecalculateReason.COMMAND);
+            }
+            return false;
+        }
+
+        return plugin.getWorthManager().getLastScan(pos) < result.getQueued();
+    }
+
+    /**
+     * Keeps the most recently used region files mapped, evicting the least
+     * recently used so the mapped files stay bounded.
+     */
+    private static class RegionFileCache extends LinkedHashMap<File, RegionFile> {
+
+        private RegionFileCache() {
+            super(16, 0.75f, true);
+        }
 
-            final double worthFinal = worth;
-            plugin.getServer().getScheduler().runTask(plugin, () -> {
-                plugin.getWorthManager().set(pos, WorthType.BLOCK, worthFinal);
-                plugin.getWorthManager().setMaterials(pos, materials);
-            });
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<File, RegionFile> eldest) {
+            return size() > MAX_REGION_FILES;
         }
     }
 }
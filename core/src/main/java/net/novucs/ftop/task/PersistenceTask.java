@@ -7,35 +7,79 @@ import net.novucs.ftop.entity.FactionWorth;
 
 import java.sql.SQLException;
 import java.util.*;
-import java.util.concurrent.BlockingQueue;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 
 public class PersistenceTask extends Thread {
 
+    private static final int MAX_ATTEMPTS = 5;
+
     private final FactionsTopPlugin plugin;
-    private final BlockingQueue<Map.Entry<ChunkPos, ChunkWorth>> chunkQueue = new LinkedBlockingQueue<>();
-    private final BlockingQueue<FactionWorth> factionQueue = new LinkedBlockingQueue<>();
+    private final ConcurrentMap<ChunkPos, ChunkWorth> chunkQueue = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, FactionWorth> factionQueue = new ConcurrentHashMap<>();
+    private final AtomicLong chunksQueued = new AtomicLong();
+    private final AtomicLong factionsQueued = new AtomicLong();
+    private final AtomicLong chunksWritten = new AtomicLong();
+    private final AtomicLong factionsWritten = new AtomicLong();
+    private final Map<ChunkPos, Integer> chunkFailures = new HashMap<>();
+    private final Map<String, Integer> factionFailures = new HashMap<>();
+
+    public PersistenceTask(FactionsTopPlugin plugin) {
+        super("factions-top-persistence-task");
+        this.plugin = plugin;
+    }
 
+    /**
+     * Marks a chunk as dirty, a chunk queued several times before the next
+     * flush is only written once with its latest state.
+     *
+     * @param pos        the chunk position.
+     * @param chunkWorth the chunk worth.
+     */
     public void queue(ChunkPos pos, ChunkWorth chunkWorth) {
-        chunkQueue.add(new AbstractMap.SimpleImmutableEntry<>(pos, chunkWorth));
+        chunksQueued.incrementAndGet();
+        chunkQueue.put(pos, chunkWorth);
     }
 
     public void queue(FactionWorth factionWorth) {
         if (plugin.getSettings().isDatabasePersistFactions()) {
-            factionQueue.add(factionWorth);
+            factionsQueued.incrementAndGet();
+            factionQueue.put(factionWorth.getFactionId(), factionWorth);
         }
     }
 
     public void queue(Collection<FactionWorth> factions) {
         if (plugin.getSettings().isDatabasePersistFactions()) {
-            factionQueue.addAll(factions);
+            factions.forEach(this::queue);
         }
     }
 
-    public PersistenceTask(FactionsTopPlugin plugin) {
-        super("factions-top-persistence-task");
-        this.plugin = plugin;
+    public int getChunkQueueDepth() {
+        return chunkQueue.size();
+    }
+
+    public int getFactionQueueDepth() {
+        return factionQueue.size();
+    }
+
+    /**
+     * Gets the average number of times each written chunk was queued.
+     *
+     * @return the chunk coalescing ratio.
+     */
+    public double getChunkCoalescingRatio() {
+        return ratio(chunksQueued.get() - chunkQueue.size(), chunksWritten.get());
+    }
+
+    /**
+     * Gets the average number of times each written faction was queued.
+     *
+     * @return the faction coalescing ratio.
+     */
+    public double getFactionCoalescingRatio() {
+        return ratio(factionsQueued.get() - factionQueue.size(), factionsWritten.get());
     }
 
     @Override
@@ -56,27 +100,103 @@ public class PersistenceTask extends Thread {
     private void persist() {
         persistChunks();
         persistFactions();
+
+        if (plugin.getLogger().isLoggable(Level.FINE)) {
+            plugin.getLogger().fine(String.format("Persistence queue depth: %d chunks, %d factions. " +
+                            "Coalescing ratio: %.2f chunks, %.2f factions.",
+                    getChunkQueueDepth(), getFactionQueueDepth(),
+                    getChunkCoalescingRatio(), getFactionCoalescingRatio()));
+        }
     }
 
     private void persistChunks() {
-        List<Map.Entry<ChunkPos, ChunkWorth>> chunks = new LinkedList<>();
-        chunkQueue.drainTo(chunks);
+        persist(chunkQueue, chunkFailures, chunksWritten, "chunk",
+                chunks -> plugin.getDatabaseManager().saveChunks(chunks));
+    }
+
+    private void persistFactions() {
+        persist(factionQueue, factionFailures, factionsWritten, "faction", factions -> {
+            List<FactionWorth> values = new ArrayList<>(factions.size());
+            factions.forEach(entry -> values.add(entry.getValue()));
+            plugin.getDatabaseManager().saveFactions(values);
+        });
+    }
+
+    /**
+     * Flushes a dirty set. Entries which failed before are retried one at a
+     * time, so a single entry which cannot be saved does not hold back the
+     * rest, and is dropped once it has failed {@link #MAX_ATTEMPTS} times.
+     */
+    private <K, V> void persist(ConcurrentMap<K, V> queue, Map<K, Integer> failures, AtomicLong written,
+                                String type, Flush<K, V> flush) {
+        List<Map.Entry<K, V>> entries = drain(queue);
+        List<Map.Entry<K, V>> fresh = new ArrayList<>(entries.size());
+        List<Map.Entry<K, V>> retries = new ArrayList<>();
+
+        for (Map.Entry<K, V> entry : entries) {
+            if (failures.containsKey(entry.getKey())) {
+                retries.add(entry);
+            } else {
+                fresh.add(entry);
+            }
+        }
 
         try {
-            plugin.getDatabaseManager().saveChunks(chunks);
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to persist chunk data", e);
+            flush.save(fresh);
+            written.addAndGet(fresh.size());
+        } catch (SQLException | RuntimeException e) {
+            plugin.getLogger().log(Level.SEVERE, "Failed to persist " + type + " data", e);
+            fresh.forEach(entry -> fail(queue, failures, entry, type));
+        }
+
+        for (Map.Entry<K, V> entry : retries) {
+            try {
+                flush.save(Collections.singletonList(entry));
+                written.incrementAndGet();
+                failures.remove(entry.getKey());
+            } catch (SQLException | RuntimeException e) {
+                fail(queue, failures, entry, type);
+            }
         }
     }
 
-    private void persistFactions() {
-        List<FactionWorth> factions = new LinkedList<>();
-        factionQueue.drainTo(factions);
+    /**
+     * Returns a failed entry to a dirty set without replacing newer state,
+     * or drops it once out of attempts.
+     */
+    private <K, V> void fail(ConcurrentMap<K, V> queue, Map<K, Integer> failures, Map.Entry<K, V> entry,
+                             String type) {
+        int attempts = failures.merge(entry.getKey(), 1, Integer::sum);
+        if (attempts < MAX_ATTEMPTS) {
+            queue.putIfAbsent(entry.getKey(), entry.getValue());
+            return;
+        }
 
-        try {
-            plugin.getDatabaseManager().saveFactions(factions);
-        } catch (SQLException e) {
-            plugin.getLogger().log(Level.SEVERE, "Failed to persist faction data", e);
+        failures.remove(entry.getKey());
+        plugin.getLogger().warning("Dropped " + type + " " + entry.getKey() + " after " + attempts +
+                " failed attempts to persist it");
+    }
+
+    /**
+     * Removes every entry from a dirty set, entries queued again while
+     * draining are left for the next flush.
+     */
+    private <K, V> List<Map.Entry<K, V>> drain(ConcurrentMap<K, V> queue) {
+        List<Map.Entry<K, V>> target = new ArrayList<>(queue.size());
+        for (K key : queue.keySet()) {
+            V value = queue.remove(key);
+            if (value != null) {
+                target.add(new AbstractMap.SimpleImmutableEntry<>(key, value));
+            }
         }
+        return target;
+    }
+
+    private double ratio(long queued, long written) {
+        return written == 0 ? 0 : (double) queued / written;
+    }
+
+    private interface Flush<K, V> {
+        void save(List<Map.Entry<K, V>> entries) throws SQLException;
     }
 }
@@ -5,14 +5,30 @@ import net.novucs.ftop.PluginService;
 import net.novucs.ftop.RecalculateReason;
 import net.novucs.ftop.entity.ChunkPos;
 import org.bukkit.Chunk;
+import org.bukkit.World;
 
+import java.sql.SQLException;
+import java.util.Queue;
 import java.util.Stack;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 
 public class RecalculateTask implements PluginService, Runnable {
 
+    private static final long PROGRESS_INTERVAL = TimeUnit.SECONDS.toNanos(10);
+
     private final FactionsTopPlugin plugin;
     private final Stack<ChunkPos> toRecalculate = new Stack<>();
+    private final Queue<ChunkPos> fallbacks = new ConcurrentLinkedQueue<>();
+    private boolean running;
+    private boolean offlineQueued;
     private int taskId;
+    private int total;
+    private int chunksPerTick;
+    private long started;
+    private long startTime;
+    private long lastProgress;
 
     public RecalculateTask(FactionsTopPlugin plugin) {
         this.plugin = plugin;
@@ -21,49 +37,246 @@ public class RecalculateTask implements PluginService, Runnable {
     @Override
     public void initialize() {
         if (!isRunning()) {
-            toRecalculate.addAll(plugin.getFactionsHook().getClaims());
-            taskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1, 1).getTaskId();
+            start(System.currentTimeMillis());
+            saveCheckpoint();
             plugin.getServer().broadcastMessage(plugin.getSettings().getRecalculationStartMessage());
         } else {
             throw new IllegalStateException("Recalculation task is already running");
         }
     }
 
+    /**
+     * Resumes an unfinished recalculation, chunks scanned since it started
+     * are skipped.
+     *
+     * @param started the epoch millis the recalculation started.
+     */
+    public void resume(long started) {
+        if (!isRunning()) {
+            start(started);
+            plugin.getLogger().info("Resuming chunk resynchronization, " + getRemaining() + " claims to check");
+        } else {
+            throw new IllegalStateException("Recalculation task is already running");
+        }
+    }
+
+    private void start(long started) {
+        this.started = started;
+        running = true;
+        offlineQueued = false;
+        toRecalculate.addAll(plugin.getFactionsHook().getClaims());
+        total = toRecalculate.size();
+        chunksPerTick = 1;
+        startTime = System.nanoTime();
+        lastProgress = startTime;
+        taskId = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1, 1).getTaskId();
+    }
+
     @Override
     public void terminate() {
         if (isRunning()) {
-            toRecalculate.clear();
-            plugin.getServer().getScheduler().cancelTask(taskId);
+            stop();
+            removeCheckpoint();
             plugin.getServer().broadcastMessage(plugin.getSettings().getRecalculationStopMessage());
         } else {
             throw new IllegalStateException("No recalculation task was running");
         }
     }
 
+    /**
+     * Stops the recalculation without discarding its checkpoint, so it is
+     * resumed on the next startup.
+     */
+    public void suspend() {
+        if (isRunning()) {
+            stop();
+        } else {
+            throw new IllegalStateException("No recalculation task was running");
+        }
+    }
+
+    private void stop() {
+        running = false;
+        toRecalculate.clear();
+        fallbacks.clear();
+        plugin.getServer().getScheduler().cancelTask(taskId);
+    }
+
     public boolean isRunning() {
-        return !toRecalculate.isEmpty();
+        return running;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public int getRemaining() {
+        return toRecalculate.size() + fallbacks.size();
+    }
+
+    public int getChunksPerTick() {
+        return chunksPerTick;
+    }
+
+    /**
+     * Estimates the time remaining from the average rate so far.
+     *
+     * @return the estimated millis remaining, or -1 if unknown.
+     */
+    public long getEtaMillis() {
+        int remaining = getRemaining();
+        int completed = total - remaining;
+        if (completed <= 0) {
+            return -1;
+        }
+
+        long elapsed = System.nanoTime() - startTime;
+        return TimeUnit.NANOSECONDS.toMillis(elapsed / completed * remaining);
+    }
+
+    /**
+     * Gets a summary of the recalculation progress.
+     *
+     * @return the progress.
+     */
+    public String getProgress() {
+        int completed = total - getRemaining();
+        long eta = getEtaMillis();
+        return completed + "/" + total + " chunks (" + (total == 0 ? 100 : completed * 100 / total) + "%), " +
+                chunksPerTick + " chunks per tick, " + plugin.getChunkWorthTask().getQueueSize() +
+                " queued for scanning, ETA " + (eta < 0 ? "unknown" : TimeUnit.MILLISECONDS.toSeconds(eta) + "s");
     }
 
     @Override
     public void run() {
-        int counter = plugin.getSettings().getRecalculateChunksPerTick();
+        long budget = TimeUnit.MILLISECONDS.toNanos(plugin.getSettings().getRecalculateMillisPerTick());
+        long start = System.nanoTime();
+        long deadline = start + budget;
+        int counter = chunksPerTick;
+        boolean backlogged = false;
+
+        boolean offline = plugin.getSettings().isOfflineRecalculation();
+
+        while (true) {
+            // Leave the remaining chunks for later ticks while the chunk
+            // scanners are at capacity.
+            if (plugin.getChunkWorthTask().isFull()) {
+                backlogged = true;
+                break;
+            }
+
+            if (System.nanoTime() >= deadline) {
+                break;
+            }
+
+            // Chunks which could not be scanned from their region file are
+            // loaded before any others.
+            ChunkPos pos = fallbacks.peek();
+            boolean fallback = pos != null;
+
+            if (!fallback) {
+                if (toRecalculate.isEmpty()) {
+                    break;
+                }
+
+                // Chunks scanned since this recalculation started, including
+                // before a restart, are already up to date.
+                pos = toRecalculate.peek();
+                if (plugin.getWorthManager().getLastScan(pos) >= started) {
+                    toRecalculate.pop();
+                    continue;
+                }
+            }
 
-        while (isRunning()) {
             if (counter-- <= 0) {
                 break;
             }
 
-            ChunkPos pos = toRecalculate.pop();
+            if (fallback) {
+                fallbacks.poll();
+            } else {
+                toRecalculate.pop();
+            }
+
+            // Scan unloaded chunks from their region files rather than
+            // loading them on the main thread.
+            World world = plugin.getServer().getWorld(pos.getWorld());
+            if (!fallback && offline && world != null && !world.isChunkLoaded(pos.getX(), pos.getZ())) {
+                offlineQueued = true;
+                plugin.getWorthManager().recalculate(world, pos, RecalculateReason.COMMAND, fallbacks::add);
+                continue;
+            }
+
             Chunk chunk = pos.getChunk(plugin.getServer());
             if (chunk != null && chunk.load()) {
                 plugin.getWorthManager().recalculate(chunk, RecalculateReason.COMMAND);
             }
         }
 
-        if (!isRunning()) {
+        adjustChunksPerTick(System.nanoTime() - start, budget, counter < 0, backlogged);
+
+        // Region file scans still in flight may yet need loading.
+        boolean finished = toRecalculate.isEmpty() && fallbacks.isEmpty() &&
+                (!offlineQueued || plugin.getChunkWorthTask().getQueueSize() == 0);
+
+        if (finished) {
+            running = false;
+            plugin.getChunkWorthTask().clearRegionFiles();
             plugin.getWorthManager().updateAllFactions();
             plugin.getServer().getScheduler().cancelTask(taskId);
+            removeCheckpoint();
             plugin.getServer().broadcastMessage(plugin.getSettings().getRecalculationFinishMessage());
+            return;
+        }
+
+        if (System.nanoTime() - lastProgress >= PROGRESS_INTERVAL) {
+            lastProgress = System.nanoTime();
+            plugin.getLogger().info("Recalculation progress: " + getProgress());
+        }
+    }
+
+    private void saveCheckpoint() {
+        long started = this.started;
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                plugin.getDatabaseManager().saveRecalculation(started);
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to save the recalculation checkpoint to the database!");
+                plugin.getLogger().log(Level.SEVERE, "The error is as follows: ", e);
+            }
+        });
+    }
+
+    private void removeCheckpoint() {
+        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            try {
+                plugin.getDatabaseManager().removeRecalculation();
+            } catch (SQLException e) {
+                plugin.getLogger().severe("Failed to remove the recalculation checkpoint from the database!");
+                plugin.getLogger().log(Level.SEVERE, "The error is as follows: ", e);
+            }
+        });
+    }
+
+    /**
+     * Adjusts the chunks recalculated per tick, backing off quickly when a
+     * tick overruns the budget or the chunk scanners fall behind and growing
+     * slowly otherwise.
+     *
+     * @param elapsed    the nanos spent this tick.
+     * @param budget     the nanos allowed per tick.
+     * @param exhausted  true if every chunk allowed this tick was used.
+     * @param backlogged true if the chunk scanners were at capacity.
+     */
+    private void adjustChunksPerTick(long elapsed, long budget, boolean exhausted, boolean backlogged) {
+        int max = Math.max(1, plugin.getSettings().getRecalculateChunksPerTick());
+        int queueSize = plugin.getChunkWorthTask().getQueueSize();
+        int queueLimit = plugin.getSettings().getChunkQueueSize();
+
+        if (elapsed > budget || backlogged) {
+            chunksPerTick = Math.max(1, chunksPerTick / 2);
+        } else if (exhausted && queueSize < queueLimit / 2) {
+            chunksPerTick = Math.min(max, chunksPerTick + 1);
         }
     }
 }
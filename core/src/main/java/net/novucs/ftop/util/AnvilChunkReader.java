@@ -0,0 +1,230 @@
+package net.novucs.ftop.util;
+
+import java.io.DataInput;
+import java.io.IOException;
+import java.util.Set;
+
+/**
+ * Streams the NBT of an Anvil chunk, counting block IDs without building a
+ * tag tree. Only the numeric block ID format is supported.
+ */
+public final class AnvilChunkReader {
+
+    private static final int TAG_END = 0;
+    private static final int TAG_BYTE = 1;
+    private static final int TAG_SHORT = 2;
+    private static final int TAG_INT = 3;
+    private static final int TAG_LONG = 4;
+    private static final int TAG_FLOAT = 5;
+    private static final int TAG_DOUBLE = 6;
+    private static final int TAG_BYTE_ARRAY = 7;
+    private static final int TAG_STRING = 8;
+    private static final int TAG_LIST = 9;
+    private static final int TAG_COMPOUND = 10;
+    private static final int TAG_INT_ARRAY = 11;
+    private static final int TAG_LONG_ARRAY = 12;
+
+    private static final int SECTION_BLOCKS = 4096;
+
+    private AnvilChunkReader() {
+    }
+
+    /**
+     * Counts the block IDs of each chunk section and collects the tile
+     * entity IDs of the chunk.
+     *
+     * @param in           the decompressed chunk NBT.
+     * @param counts       the count of each block ID to add to, indexed by
+     *                     section then ID. IDs beyond its length and
+     *                     sections outside the world are ignored.
+     * @param tileEntities the tile entity IDs to add to.
+     * @throws IOException if the NBT is malformed or not in the numeric block
+     *                     ID format.
+     */
+    public static void read(DataInput in, int[][] counts, Set<String> tileEntities) throws IOException {
+        if (in.readUnsignedByte() != TAG_COMPOUND) {
+            throw new IOException("Chunk root is not a compound");
+        }
+
+        in.readUTF();
+
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_COMPOUND && name.equals("Level")) {
+                readLevel(in, counts, tileEntities);
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    /**
+     * Checks if a tile entity ID is a spawner or chest, whose worth can only
+     * be read from loaded chunks.
+     *
+     * @param tileEntity the tile entity ID.
+     * @return true if a spawner or chest.
+     */
+    public static boolean isSpawnerOrChest(String tileEntity) {
+        String id = tileEntity.toLowerCase().replace("minecraft:", "");
+        return id.equals("mobspawner") || id.equals("mob_spawner") ||
+                id.equals("chest") || id.equals("trapped_chest");
+    }
+
+    private static void readLevel(DataInput in, int[][] counts, Set<String> tileEntities) throws IOException {
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_LIST && name.equals("Sections")) {
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    if (elementType != TAG_COMPOUND) {
+                        skip(in, elementType);
+                        continue;
+                    }
+                    readSection(in, counts);
+                }
+            } else if (type == TAG_LIST && name.equals("TileEntities")) {
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    if (elementType != TAG_COMPOUND) {
+                        skip(in, elementType);
+                        continue;
+                    }
+                    readTileEntity(in, tileEntities);
+                }
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    private static void readSection(DataInput in, int[][] counts) throws IOException {
+        byte[] blocks = null;
+        byte[] add = null;
+        int y = -1;
+
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_BYTE_ARRAY && name.equals("Blocks")) {
+                blocks = readByteArray(in, SECTION_BLOCKS);
+            } else if (type == TAG_BYTE_ARRAY && name.equals("Add")) {
+                add = readByteArray(in, SECTION_BLOCKS / 2);
+            } else if (type == TAG_BYTE && name.equals("Y")) {
+                y = in.readByte();
+            } else {
+                skip(in, type);
+            }
+        }
+
+        if (blocks == null) {
+            throw new IOException("Chunk section has no numeric block IDs");
+        }
+
+        if (y < 0 || y >= counts.length) {
+            return;
+        }
+
+        int[] sectionCounts = counts[y];
+        for (int i = 0; i < SECTION_BLOCKS; i++) {
+            int id = blocks[i] & 0xFF;
+            if (add != null) {
+                id |= ((add[i >> 1] >> ((i & 1) << 2)) & 0xF) << 8;
+            }
+
+            if (id < sectionCounts.length) {
+                sectionCounts[id]++;
+            }
+        }
+    }
+
+    private static void readTileEntity(DataInput in, Set<String> tileEntities) throws IOException {
+        int type;
+        while ((type = in.readUnsignedByte()) != TAG_END) {
+            String name = in.readUTF();
+            if (type == TAG_STRING && name.equals("id")) {
+                tileEntities.add(in.readUTF());
+            } else {
+                skip(in, type);
+            }
+        }
+    }
+
+    private static byte[] readByteArray(DataInput in, int expected) throws IOException {
+        int length = in.readInt();
+        if (length != expected) {
+            throw new IOException("Expected " + expected + " bytes but found " + length);
+        }
+
+        byte[] target = new byte[length];
+        in.readFully(target);
+        return target;
+    }
+
+    private static void skip(DataInput in, int type) throws IOException {
+        switch (type) {
+            case TAG_BYTE:
+                skipFully(in, 1);
+                break;
+            case TAG_SHORT:
+                skipFully(in, 2);
+                break;
+            case TAG_INT:
+            case TAG_FLOAT:
+                skipFully(in, 4);
+                break;
+            case TAG_LONG:
+            case TAG_DOUBLE:
+                skipFully(in, 8);
+                break;
+            case TAG_BYTE_ARRAY:
+                skipFully(in, in.readInt());
+                break;
+            case TAG_STRING:
+                skipFully(in, in.readUnsignedShort());
+                break;
+            case TAG_LIST:
+                int elementType = in.readUnsignedByte();
+                int length = in.readInt();
+                for (int i = 0; i < length; i++) {
+                    skip(in, elementType);
+                }
+                break;
+            case TAG_COMPOUND:
+                int childType;
+                while ((childType = in.readUnsignedByte()) != TAG_END) {
+                    skipFully(in, in.readUnsignedShort());
+                    skip(in, childType);
+                }
+                break;
+            case TAG_INT_ARRAY:
+                skipFully(in, in.readInt() * 4L);
+                break;
+            case TAG_LONG_ARRAY:
+                skipFully(in, in.readInt() * 8L);
+                break;
+            default:
+                throw new IOException("Unknown tag type " + type);
+        }
+    }
+
+    private static void skipFully(DataInput in, long bytes) throws IOException {
+        if (bytes < 0) {
+            throw new IOException("Negative tag length");
+        }
+
+        while (bytes > 0) {
+            int skipped = in.skipBytes((int) Math.min(bytes, Integer.MAX_VALUE));
+            if (skipped <= 0) {
+                // Some streams refuse to skip, fall back to reading.
+                in.readByte();
+                skipped = 1;
+            }
+            bytes -= skipped;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package net.novucs.ftop.util;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A counter of enum constants. Counts start sparse, storing each constant
+ * ordinal and its count packed into a single long sorted by ordinal, and turn
+ * dense, storing an int per constant indexed by ordinal, once a quarter of
+ * the constants are counted and the sparse form would be half the size.
+ * Counts never go below zero and constants remain present once counted, so a
+ * count returning to zero is still persisted.
+ *
+ * @param <E> the enum type.
+ */
+public class EnumCounter<E extends Enum<E>> {
+
+    private static final long[] EMPTY = new long[0];
+    private static final int ABSENT = -1;
+    private static final ClassValue<Object[]> CONSTANTS = new ClassValue<Object[]>() {
+        @Override
+        protected Object[] computeValue(Class<?> type) {
+            return type.getEnumConstants();
+        }
+    };
+
+    private final Class<E> type;
+
+    // Either the sparse long entries or the dense int counts, where constants
+    // never counted are ABSENT. Only ever replaced whole, so readers on other
+    // threads see one form or the other.
+    private volatile Object storage = EMPTY;
+
+    public EnumCounter(Class<E> type) {
+        this.type = type;
+    }
+
+    public EnumCounter(Class<E> type, Map<E, Integer> counts) {
+        this(type);
+        addAll(counts);
+    }
+
+    public EnumCounter(EnumCounter<E> counter) {
+        this.type = counter.type;
+        Object storage = counter.storage;
+        this.storage = storage instanceof int[] ? ((int[]) storage).clone() : ((long[]) storage).clone();
+    }
+
+    /**
+     * Gets the number of counted constants, including those counted to zero.
+     *
+     * @return the number of constants.
+     */
+    public int size() {
+        Object storage = this.storage;
+        if (!(storage instanceof int[])) {
+            return ((long[]) storage).length;
+        }
+
+        int size = 0;
+        for (int count : (int[]) storage) {
+            if (count != ABSENT) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Gets the lowest counted ordinal at or above the one given, used to walk
+     * the counted constants in order without allocating.
+     *
+     * @param ordinal the ordinal to start from.
+     * @return the next counted ordinal, or -1 if there are none left.
+     */
+    public int nextOrdinal(int ordinal) {
+        Object storage = this.storage;
+        if (storage instanceof int[]) {
+            int[] counts = (int[]) storage;
+            for (int i = ordinal; i < counts.length; i++) {
+                if (counts[i] != ABSENT) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        long[] entries = (long[]) storage;
+        int index = indexOf(entries, ordinal);
+        if (index < 0) {
+            index = -index - 1;
+        }
+        return index < entries.length ? ordinal(entries[index]) : -1;
+    }
+
+    public E getConstant(int ordinal) {
+        return type.cast(CONSTANTS.get(type)[ordinal]);
+    }
+
+    public int get(E key) {
+        Object storage = this.storage;
+        if (storage instanceof int[]) {
+            return Math.max(0, ((int[]) storage)[key.ordinal()]);
+        }
+
+        long[] entries = (long[]) storage;
+        int index = indexOf(entries, key.ordinal());
+        return index < 0 ? 0 : count(entries[index]);
+    }
+
+    public void set(E key, int count) {
+        count = Math.max(0, count);
+        Object storage = this.storage;
+
+        if (storage instanceof int[]) {
+            ((int[]) storage)[key.ordinal()] = count;
+            return;
+        }
+
+        long[] entries = (long[]) storage;
+        int index = indexOf(entries, key.ordinal());
+
+        if (index >= 0) {
+            entries[index] = pack(key.ordinal(), count);
+            return;
+        }
+
+        int constants = CONSTANTS.get(type).length;
+        if (entries.length + 1 >= constants / 4) {
+            int[] counts = new int[constants];
+            Arrays.fill(counts, ABSENT);
+            for (long entry : entries) {
+                counts[ordinal(entry)] = count(entry);
+            }
+            counts[key.ordinal()] = count;
+            this.storage = counts;
+            return;
+        }
+
+        // Constants are rarely introduced, so grow by exactly one to keep
+        // the storage as small as possible.
+        index = -index - 1;
+        long[] grown = new long[entries.length + 1];
+        System.arraycopy(entries, 0, grown, 0, index);
+        grown[index] = pack(key.ordinal(), count);
+        System.arraycopy(entries, index, grown, index + 1, entries.length - index);
+        this.storage = grown;
+    }
+
+    public void add(E key, int count) {
+        set(key, get(key) + count);
+    }
+
+    public void addAll(Map<E, Integer> counts) {
+        counts.forEach(this::add);
+    }
+
+    public void addAll(EnumCounter<E> counter) {
+        counter.forEach(this::add);
+    }
+
+    public void removeAll(Map<E, Integer> counts) {
+        counts.forEach((key, count) -> add(key, -count));
+    }
+
+    public void removeAll(EnumCounter<E> counter) {
+        counter.forEach((key, count) -> add(key, -count));
+    }
+
+    /**
+     * Replaces all counts, constants no longer present are counted as zero.
+     *
+     * @param counts the new counts.
+     */
+    public void setAll(Map<E, Integer> counts) {
+        Object storage = this.storage;
+        if (storage instanceof int[]) {
+            int[] dense = (int[]) storage;
+            for (int i = 0; i < dense.length; i++) {
+                if (dense[i] != ABSENT) {
+                    dense[i] = 0;
+                }
+            }
+        } else {
+            long[] entries = (long[]) storage;
+            for (int i = 0; i < entries.length; i++) {
+                entries[i] = pack(ordinal(entries[i]), 0);
+            }
+        }
+        addAll(counts);
+    }
+
+    public void forEach(ObjIntConsumer<E> consumer) {
+        Object[] constants = CONSTANTS.get(type);
+        Object storage = this.storage;
+
+        if (storage instanceof int[]) {
+            int[] counts = (int[]) storage;
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != ABSENT) {
+                    consumer.accept(type.cast(constants[i]), counts[i]);
+                }
+            }
+            return;
+        }
+
+        for (long entry : (long[]) storage) {
+            consumer.accept(type.cast(constants[ordinal(entry)]), count(entry));
+        }
+    }
+
+    public Map<E, Integer> toMap() {
+        Map<E, Integer> map = new EnumMap<>(type);
+        forEach(map::put);
+        return map;
+    }
+
+    /**
+     * Binary searches for an ordinal, returning the insertion point as
+     * -(point + 1) when absent.
+     */
+    private static int indexOf(long[] entries, int ordinal) {
+        int low = 0;
+        int high = entries.length - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int midOrdinal = ordinal(entries[mid]);
+
+            if (midOrdinal < ordinal) {
+                low = mid + 1;
+            } else if (midOrdinal > ordinal) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+
+        return -(low + 1);
+    }
+
+    private static long pack(int ordinal, int count) {
+        return ((long) ordinal << 32) | (count & 0xFFFFFFFFL);
+    }
+
+    private static int ordinal(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    private static int count(long entry) {
+        return (int) entry;
+    }
+
+    @Override
+    public String toString() {
+        return toMap().toString();
+    }
+}
@@ -0,0 +1,62 @@
+package net.novucs.ftop.util;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A set of ints stored in a single sorted array, suited to small sets which
+ * are rarely modified.
+ */
+public class IntSet {
+
+    private static final int[] EMPTY = new int[0];
+
+    private int[] values = EMPTY;
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean contains(int value) {
+        return Arrays.binarySearch(values, value) >= 0;
+    }
+
+    public boolean add(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index >= 0) {
+            return false;
+        }
+
+        index = -index - 1;
+        int[] grown = new int[values.length + 1];
+        System.arraycopy(values, 0, grown, 0, index);
+        grown[index] = value;
+        System.arraycopy(values, index, grown, index + 1, values.length - index);
+        values = grown;
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = Arrays.binarySearch(values, value);
+        if (index < 0) {
+            return false;
+        }
+
+        int[] shrunk = values.length == 1 ? EMPTY : new int[values.length - 1];
+        System.arraycopy(values, 0, shrunk, 0, index);
+        System.arraycopy(values, index + 1, shrunk, index, values.length - index - 1);
+        values = shrunk;
+        return true;
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int value : values) {
+            consumer.accept(value);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(values);
+    }
+}
@@ -0,0 +1,300 @@
+package net.novucs.ftop.util;
+
+import net.novucs.ftop.Settings;
+import net.novucs.ftop.WorthType;
+import net.novucs.ftop.entity.FactionWorth;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+
+import java.text.NumberFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * A message parsed once into literal text and placeholder segments, with any
+ * worth type, material or spawner referenced already resolved.
+ */
+public final class MessageTemplate {
+
+    private static final int LITERAL = 0;
+    private static final int LOOKUP = 1;
+    private static final int RANK = 2;
+    private static final int RELCOLOR = 3;
+    private static final int FACTION = 4;
+    private static final int WORTH_TOTAL = 5;
+    private static final int COUNT_TOTAL_SPAWNER = 6;
+    private static final int WORTH = 7;
+    private static final int COUNT_SPAWNER = 8;
+    private static final int COUNT_MATERIAL = 9;
+
+    private final String message;
+    private final int[] types;
+    private final String[] texts;
+    private final Object[] keys;
+
+    private MessageTemplate(String message, int[] types, String[] texts, Object[] keys) {
+        this.message = message;
+        this.types = types;
+        this.texts = texts;
+        this.keys = keys;
+    }
+
+    public static MessageTemplate compile(String message) {
+        List<Integer> types = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<Object> keys = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+
+        int index = 0;
+        while (index < message.length()) {
+            int open = message.indexOf('{', index);
+            int close = open < 0 ? -1 : message.indexOf('}', open + 1);
+            if (close < 0) {
+                literal.append(message, index, message.length());
+                break;
+            }
+
+            // Restart from any nested brace, only innermost tokens count.
+            int nested = message.indexOf('{', open + 1);
+            if (nested >= 0 && nested < close) {
+                literal.append(message, index, nested);
+                index = nested;
+                continue;
+            }
+
+            literal.append(message, index, open);
+            String token = message.substring(open, close + 1);
+            index = close + 1;
+
+            int type = typeOf(token);
+            if (type == LITERAL) {
+                literal.append(token);
+                continue;
+            }
+
+            if (literal.length() > 0) {
+                types.add(LITERAL);
+                texts.add(literal.toString());
+                keys.add(null);
+                literal.setLength(0);
+            }
+
+            types.add(type);
+            texts.add(token);
+            keys.add(keyOf(type, token));
+        }
+
+        if (literal.length() > 0) {
+            types.add(LITERAL);
+            texts.add(literal.toString());
+            keys.add(null);
+        }
+
+        return new MessageTemplate(message, types.stream().mapToInt(Integer::intValue).toArray(),
+                texts.toArray(new String[0]), keys.toArray());
+    }
+
+    public static List<MessageTemplate> compile(List<String> messages) {
+        return messages.stream()
+                .map(MessageTemplate::compile)
+                .collect(Collectors.toList());
+    }
+
+    private static int typeOf(String token) {
+        switch (token) {
+            case "{rank}":
+                return RANK;
+            case "{relcolor}":
+                return RELCOLOR;
+            case "{faction}":
+                return FACTION;
+            case "{worth:total}":
+                return WORTH_TOTAL;
+            case "{count:total:spawner}":
+                return COUNT_TOTAL_SPAWNER;
+        }
+
+        if (token.startsWith("{worth:")) {
+            return WORTH;
+        } else if (token.startsWith("{count:spawner:")) {
+            return COUNT_SPAWNER;
+        } else if (token.startsWith("{count:material:")) {
+            return COUNT_MATERIAL;
+        }
+        return token.length() > 2 ? LOOKUP : LITERAL;
+    }
+
+    private static Object keyOf(int type, String token) {
+        switch (type) {
+            case WORTH:
+                return GenericUtils.parseEnum(WorthType.class, name(token, "{worth:")).orElse(null);
+            case COUNT_SPAWNER:
+                return GenericUtils.parseEnum(EntityType.class, name(token, "{count:spawner:")).orElse(null);
+            case COUNT_MATERIAL:
+                return GenericUtils.parseEnum(Material.class, name(token, "{count:material:")).orElse(null);
+            default:
+                return null;
+        }
+    }
+
+    private static String name(String token, String prefix) {
+        return token.substring(prefix.length(), token.length() - 1);
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    public boolean isEmpty() {
+        return message.isEmpty();
+    }
+
+    public boolean hasRelationColor() {
+        for (int type : types) {
+            if (type == RELCOLOR) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Renders this template without a faction, leaving any faction
+     * placeholders untouched.
+     *
+     * @param placeholders the additional placeholders to insert.
+     * @return the rendered message.
+     */
+    public String render(Map<String, String> placeholders) {
+        return render(null, null, 0, null, placeholders);
+    }
+
+    /**
+     * Renders this template for a faction.
+     *
+     * @param settings     the settings providing the number formats.
+     * @param worth        the faction worth.
+     * @param rank         the faction rank.
+     * @param relcolor     the relation color to insert.
+     * @param placeholders the additional placeholders to insert.
+     * @return the rendered message.
+     */
+    public String render(Settings settings, FactionWorth worth, int rank, String relcolor,
+                         Map<String, String> placeholders) {
+        return settings == null ? render((NumberFormat) null, null, worth, rank, relcolor, placeholders) :
+                render(settings.getCurrencyFormat(), settings.getCountFormat(), worth, rank, relcolor, placeholders);
+    }
+
+    /**
+     * Renders this template for a faction with the given number formats,
+     * which must not be shared with other threads while rendering.
+     *
+     * @param currencyFormat the worth format.
+     * @param countFormat    the count format.
+     * @param worth          the faction worth.
+     * @param rank           the faction rank.
+     * @param relcolor       the relation color to insert.
+     * @param placeholders   the additional placeholders to insert.
+     * @return the rendered message.
+     */
+    public String render(NumberFormat currencyFormat, NumberFormat countFormat, FactionWorth worth, int rank,
+                         String relcolor, Map<String, String> placeholders) {
+        StringBuilder target = new StringBuilder(message.length() + 32);
+
+        for (int i = 0; i < types.length; i++) {
+            int type = types[i];
+
+            if (type == LITERAL) {
+                target.append(texts[i]);
+                continue;
+            }
+
+            if (type == LOOKUP) {
+                target.append(placeholders.getOrDefault(texts[i], texts[i]));
+                continue;
+            }
+
+            if (worth == null) {
+                target.append(texts[i]);
+                continue;
+            }
+
+            switch (type) {
+                case RANK:
+                    target.append(rank);
+                    break;
+                case RELCOLOR:
+                    target.append(relcolor);
+                    break;
+                case FACTION:
+                    target.append(worth.getName());
+                    break;
+                case WORTH_TOTAL:
+                    target.append(currencyFormat.format(worth.getTotalWorth()));
+                    break;
+                case COUNT_TOTAL_SPAWNER:
+                    target.append(countFormat.format(worth.getTotalSpawnerCount()));
+                    break;
+                case WORTH:
+                    target.append(currencyFormat.format(worth.getWorth((WorthType) keys[i])));
+                    break;
+                case COUNT_SPAWNER:
+                    target.append(countFormat.format(worth.getSpawnerCount((EntityType) keys[i])));
+                    break;
+                case COUNT_MATERIAL:
+                    target.append(countFormat.format(worth.getMaterialCount((Material) keys[i])));
+                    break;
+            }
+        }
+
+        return target.toString();
+    }
+
+    public static List<String> render(List<MessageTemplate> templates, Map<String, String> placeholders) {
+        List<String> target = new ArrayList<>(templates.size());
+        for (MessageTemplate template : templates) {
+            target.add(template.render(placeholders));
+        }
+        return target;
+    }
+
+    public static List<String> render(List<MessageTemplate> templates, Settings settings, FactionWorth worth,
+                                      int rank, String relcolor, Map<String, String> placeholders) {
+        List<String> target = new ArrayList<>(templates.size());
+        for (MessageTemplate template : templates) {
+            target.add(template.render(settings, worth, rank, relcolor, placeholders));
+        }
+        return target;
+    }
+
+    public static List<String> render(List<MessageTemplate> templates, NumberFormat currencyFormat,
+                                      NumberFormat countFormat, FactionWorth worth, int rank, String relcolor,
+                                      Map<String, String> placeholders) {
+        List<String> target = new ArrayList<>(templates.size());
+        for (MessageTemplate template : templates) {
+            target.add(template.render(currencyFormat, countFormat, worth, rank, relcolor, placeholders));
+        }
+        return target;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return message.equals(((MessageTemplate) o).message);
+    }
+
+    @Override
+    public int hashCode() {
+        return message.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "MessageTemplate{" +
+                "message='" + message + '\'' +
+                '}';
+    }
+}
@@ -0,0 +1,282 @@
+package net.novucs.ftop.util;
+
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A size-augmented treap ordering values by a score, highest first, with ties
+ * broken by ascending ID. Insertion, removal, repositioning, rank lookup and
+ * lookup by rank all run in O(log n).
+ *
+ * @param <V> the value type.
+ */
+public class OrderStatisticTree<V> {
+
+    private final Map<String, Node<V>> index = new HashMap<>();
+    private final Random random = new Random();
+    private final List<V> view = new ListView();
+    private Node<V> root;
+
+    /**
+     * Returns an unmodifiable, random access view of all values in order.
+     *
+     * @return the ordered view.
+     */
+    public List<V> asList() {
+        return view;
+    }
+
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Visits all values in order, in O(n) rather than the O(n log n) of
+     * iterating the list view.
+     *
+     * @param consumer the value consumer.
+     */
+    public void forEach(Consumer<? super V> consumer) {
+        Deque<Node<V>> path = new ArrayDeque<>();
+        Node<V> node = root;
+        while (node != null || !path.isEmpty()) {
+            while (node != null) {
+                path.push(node);
+                node = node.left;
+            }
+
+            node = path.pop();
+            consumer.accept(node.value);
+            node = node.right;
+        }
+    }
+
+    public boolean contains(String id) {
+        return index.containsKey(id);
+    }
+
+    public V get(String id) {
+        Node<V> node = index.get(id);
+        return node == null ? null : node.value;
+    }
+
+    /**
+     * Gets the value at a specific rank.
+     *
+     * @param rank the zero based rank.
+     * @return the value.
+     */
+    public V get(int rank) {
+        if (rank < 0 || rank >= size()) {
+            throw new IndexOutOfBoundsException("Rank: " + rank + ", Size: " + size());
+        }
+
+        Node<V> node = root;
+        while (true) {
+            int leftSize = size(node.left);
+            if (rank < leftSize) {
+                node = node.left;
+            } else if (rank > leftSize) {
+                rank -= leftSize + 1;
+                node = node.right;
+            } else {
+                return node.value;
+            }
+        }
+    }
+
+    /**
+     * Gets the zero based rank of a value.
+     *
+     * @param id the ID of the value.
+     * @return the rank, or -1 if not present.
+     */
+    public int rankOf(String id) {
+        Node<V> target = index.get(id);
+        if (target == null) {
+            return -1;
+        }
+
+        int rank = 0;
+        Node<V> node = root;
+        while (node != target) {
+            if (compare(target, node) < 0) {
+                node = node.left;
+            } else {
+                rank += size(node.left) + 1;
+                node = node.right;
+            }
+        }
+        return rank + size(node.left);
+    }
+
+    /**
+     * Inserts a value, replacing any previous value with the same ID.
+     *
+     * @param id    the value ID.
+     * @param score the score to order by.
+     * @param value the value.
+     */
+    public void put(String id, double score, V value) {
+        remove(id);
+        Node<V> node = new Node<>(id, score, value, random.nextInt());
+        index.put(id, node);
+        root = insert(root, node);
+    }
+
+    /**
+     * Repositions a value with its new score.
+     *
+     * @param id    the value ID.
+     * @param score the new score.
+     * @return false if no value is associated with the ID.
+     */
+    public boolean update(String id, double score) {
+        Node<V> node = index.get(id);
+        if (node == null) {
+            return false;
+        }
+
+        if (Double.compare(node.score, score) == 0) {
+            return true;
+        }
+
+        root = erase(root, node);
+        node.score = score;
+        node.left = null;
+        node.right = null;
+        node.size = 1;
+        root = insert(root, node);
+        return true;
+    }
+
+    /**
+     * Removes a value.
+     *
+     * @param id the value ID.
+     * @return the removed value, or null if not present.
+     */
+    public V remove(String id) {
+        Node<V> node = index.remove(id);
+        if (node == null) {
+            return null;
+        }
+
+        root = erase(root, node);
+        return node.value;
+    }
+
+    public void clear() {
+        index.clear();
+        root = null;
+    }
+
+    private Node<V> insert(Node<V> node, Node<V> target) {
+        if (node == null) {
+            return target;
+        }
+
+        if (target.priority > node.priority) {
+            split(node, target);
+            return update(target);
+        }
+
+        if (compare(target, node) < 0) {
+            node.left = insert(node.left, target);
+        } else {
+            node.right = insert(node.right, target);
+        }
+        return update(node);
+    }
+
+    /**
+     * Splits a subtree around the target, storing the lesser half as the
+     * targets left child and the greater half as its right child.
+     */
+    private void split(Node<V> node, Node<V> target) {
+        if (node == null) {
+            target.left = null;
+            target.right = null;
+            return;
+        }
+
+        if (compare(node, target) < 0) {
+            split(node.right, target);
+            node.right = target.left;
+            target.left = update(node);
+        } else {
+            split(node.left, target);
+            node.left = target.right;
+            target.right = update(node);
+        }
+    }
+
+    private Node<V> erase(Node<V> node, Node<V> target) {
+        if (node == target) {
+            return merge(node.left, node.right);
+        }
+
+        if (compare(target, node) < 0) {
+            node.left = erase(node.left, target);
+        } else {
+            node.right = erase(node.right, target);
+        }
+        return update(node);
+    }
+
+    private Node<V> merge(Node<V> left, Node<V> right) {
+        if (left == null) return right;
+        if (right == null) return left;
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+
+    private Node<V> update(Node<V> node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private int size(Node<V> node) {
+        return node == null ? 0 : node.size;
+    }
+
+    private int compare(Node<V> first, Node<V> second) {
+        int compare = Double.compare(second.score, first.score);
+        return compare != 0 ? compare : first.id.compareTo(second.id);
+    }
+
+    private static class Node<V> {
+        private final String id;
+        private final V value;
+        private final int priority;
+        private double score;
+        private int size = 1;
+        private Node<V> left;
+        private Node<V> right;
+
+        private Node(String id, double score, V value, int priority) {
+            this.id = id;
+            this.score = score;
+            this.value = value;
+            this.priority = priority;
+        }
+    }
+
+    private class ListView extends AbstractList<V> implements RandomAccess {
+        @Override
+        public V get(int index) {
+            return OrderStatisticTree.this.get(index);
+        }
+
+        @Override
+        public int size() {
+            return OrderStatisticTree.this.size();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package net.novucs.ftop.util;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * A read only view of an Anvil region file, memory mapped so chunks may be
+ * read by many threads at once without copying the file.
+ */
+public class RegionFile {
+
+    private static final int SECTOR_SIZE = 4096;
+    private static final int HEADER_SIZE = SECTOR_SIZE * 2;
+    private static final int COMPRESSION_GZIP = 1;
+    private static final int COMPRESSION_ZLIB = 2;
+
+    private final File file;
+    private final long length;
+    private final MappedByteBuffer buffer;
+
+    public RegionFile(File file) throws IOException {
+        this.file = file;
+
+        try (RandomAccessFile raf = new RandomAccessFile(file, "r");
+             FileChannel channel = raf.getChannel()) {
+            length = channel.size();
+            if (length < HEADER_SIZE) {
+                throw new IOException("Region file is missing its header: " + file);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+        }
+    }
+
+    /**
+     * Gets the region file holding a chunk.
+     *
+     * @param regionFolder the folder containing the region files.
+     * @param chunkX       the chunk x coordinate.
+     * @param chunkZ       the chunk z coordinate.
+     * @return the region file.
+     */
+    public static File getFile(File regionFolder, int chunkX, int chunkZ) {
+        return new File(regionFolder, "r." + (chunkX >> 5) + "." + (chunkZ >> 5) + ".mca");
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Opens the decompressed NBT data of a chunk.
+     *
+     * @param chunkX the chunk x coordinate.
+     * @param chunkZ the chunk z coordinate.
+     * @return the chunk data, or null if the chunk has not been generated.
+     * @throws IOException if the chunk data is malformed.
+     */
+    public DataInputStream getChunkData(int chunkX, int chunkZ) throws IOException {
+        // Each reader works on its own view of the shared mapping.
+        ByteBuffer view = buffer.duplicate();
+        int location = view.getInt(((chunkX & 31) + (chunkZ & 31) * 32) * 4);
+        if (location == 0) {
+            return null;
+        }
+
+        long offset = (long) (location >>> 8) * SECTOR_SIZE;
+        if (offset < HEADER_SIZE || offset + 5 > length) {
+            throw new IOException("Chunk " + chunkX + ", " + chunkZ + " lies outside " + file);
+        }
+
+        view.position((int) offset);
+        int size = view.getInt() - 1;
+        int compression = view.get();
+        if (size <= 0 || size > view.remaining()) {
+            throw new IOException("Chunk " + chunkX + ", " + chunkZ + " has an invalid length in " + file);
+        }
+
+        view.limit(view.position() + size);
+        InputStream in = new ByteBufferInputStream(view);
+
+        switch (compression) {
+            case COMPRESSION_GZIP:
+                in = new GZIPInputStream(in);
+                break;
+            case COMPRESSION_ZLIB:
+                in = new InflaterInputStream(in);
+                break;
+            default:
+                throw new IOException("Chunk " + chunkX + ", " + chunkZ + " has unknown compression " + compression);
+        }
+
+        return new DataInputStream(new BufferedInputStream(in));
+    }
+
+    private static class ByteBufferInputStream extends InputStream {
+
+        private final ByteBuffer buffer;
+
+        private ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+
+            len = Math.min(len, buffer.remaining());
+            buffer.get(b, off, len);
+            return len;
+        }
+
+        @Override
+        public int available() {
+            return buffer.remaining();
+        }
+    }
+}
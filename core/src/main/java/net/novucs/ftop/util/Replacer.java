@@ -1,7 +0,0 @@
-package net.novucs.ftop.util;
-
-public interface Replacer {
-
-    String replace(String toReplace);
-
-}
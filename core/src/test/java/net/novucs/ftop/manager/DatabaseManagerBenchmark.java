@@ -0,0 +1,310 @@
+package net.novucs.ftop.manager;
+
+import com.zaxxer.hikari.HikariConfig;
+import net.novucs.ftop.WorthType;
+import net.novucs.ftop.entity.ChunkPos;
+import net.novucs.ftop.entity.ChunkWorth;
+import net.novucs.ftop.entity.FactionWorth;
+import org.bukkit.Material;
+import org.bukkit.entity.EntityType;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+/**
+ * Times flushing chunks and factions to fresh H2 file databases, through both
+ * the batched {@link DatabaseManager} path and the per row baseline it
+ * replaced, then checks the reloaded chunks match. Not run as part of the
+ * tests, run the main method from the test classpath instead, optionally
+ * passing the number of chunks to save.
+ */
+public class DatabaseManagerBenchmark {
+
+    private static final Logger LOGGER = Logger.getLogger(DatabaseManagerBenchmark.class.getName());
+    private static final int CHUNKS_PER_FACTION = 50;
+
+    public static void main(String[] args) throws Exception {
+        int chunkCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        File folder = Files.createTempDirectory("ftop-benchmark").toFile();
+
+        try {
+            List<Map.Entry<ChunkPos, ChunkWorth>> chunks = createChunks(chunkCount);
+            List<FactionWorth> factions = createFactions(chunks);
+
+            run("baseline", folder, chunks, factions);
+            run("batched", folder, chunks, factions);
+        } finally {
+            for (File file : folder.listFiles()) {
+                file.delete();
+            }
+            folder.delete();
+        }
+    }
+
+    private static void run(String name, File folder, List<Map.Entry<ChunkPos, ChunkWorth>> chunks,
+                            List<FactionWorth> factions) throws Exception {
+        String url = "jdbc:h2:" + new File(folder, name).getAbsolutePath();
+        HikariConfig hikariConfig = new HikariConfig();
+        hikariConfig.setJdbcUrl(url);
+        hikariConfig.setUsername("sa");
+        hikariConfig.setPassword("");
+
+        DatabaseManager databaseManager = DatabaseManager.create(hikariConfig);
+        try {
+            // Loading creates the tables, which the baseline expects.
+            databaseManager.load();
+            Writer writer = name.equals("baseline") ? new BaselineWriter(url) : new Writer() {
+                @Override
+                public void saveChunks(List<Map.Entry<ChunkPos, ChunkWorth>> chunks) throws SQLException {
+                    databaseManager.saveChunks(chunks);
+                }
+
+                @Override
+                public void saveFactions(List<FactionWorth> factions) throws SQLException {
+                    databaseManager.saveFactions(factions);
+                }
+            };
+
+            long chunkInsert = time(() -> writer.saveChunks(chunks));
+            long chunkUpdate = time(() -> writer.saveChunks(chunks));
+            long factionInsert = time(() -> writer.saveFactions(factions));
+            long factionUpdate = time(() -> writer.saveFactions(factions));
+
+            Map<ChunkPos, ChunkWorth> loaded = databaseManager.load();
+            int mismatched = 0;
+            for (Map.Entry<ChunkPos, ChunkWorth> entry : chunks) {
+                if (!matches(entry.getValue(), loaded.get(entry.getKey()))) {
+                    mismatched++;
+                }
+            }
+
+            LOGGER.info(String.format("%s: %d chunks insert %d ms, update %d ms; %d factions insert %d ms, " +
+                            "update %d ms; %d chunks reloaded, %d mismatched", name, chunks.size(), chunkInsert,
+                    chunkUpdate, factions.size(), factionInsert, factionUpdate, loaded.size(), mismatched));
+        } finally {
+            databaseManager.close();
+        }
+    }
+
+    private static List<Map.Entry<ChunkPos, ChunkWorth>> createChunks(int count) {
+        Random random = new Random(1);
+        Material[] materials = Material.values();
+        EntityType[] spawners = EntityType.values();
+        List<Map.Entry<ChunkPos, ChunkWorth>> chunks = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            ChunkWorth chunkWorth = new ChunkWorth();
+            chunkWorth.setWorth(WorthType.BLOCK, random.nextInt(5000));
+            chunkWorth.setWorth(WorthType.CHEST, random.nextInt(100));
+
+            Map<Material, Integer> materialCounts = new EnumMap<>(Material.class);
+            for (int j = 0; j < 3; j++) {
+                materialCounts.put(materials[random.nextInt(materials.length)], 1 + random.nextInt(50));
+            }
+            chunkWorth.addMaterials(materialCounts);
+
+            if (i % 10 == 0) {
+                Map<EntityType, Integer> spawnerCounts = new EnumMap<>(EntityType.class);
+                spawnerCounts.put(spawners[random.nextInt(spawners.length)], 1);
+                chunkWorth.addSpawners(spawnerCounts);
+            }
+
+            ChunkPos pos = ChunkPos.of("world", i % 100, i / 100);
+            chunks.add(new AbstractMap.SimpleImmutableEntry<>(pos, chunkWorth));
+        }
+
+        return chunks;
+    }
+
+    private static List<FactionWorth> createFactions(List<Map.Entry<ChunkPos, ChunkWorth>> chunks) {
+        List<FactionWorth> factions = new ArrayList<>();
+        for (int i = 0; i * CHUNKS_PER_FACTION < chunks.size(); i++) {
+            FactionWorth factionWorth = new FactionWorth("faction-" + i, "Faction" + i);
+            int end = Math.min(chunks.size(), (i + 1) * CHUNKS_PER_FACTION);
+            for (int j = i * CHUNKS_PER_FACTION; j < end; j++) {
+                factionWorth.addAll(chunks.get(j).getValue());
+            }
+            factions.add(factionWorth);
+        }
+        return factions;
+    }
+
+    private static boolean matches(ChunkWorth expected, ChunkWorth actual) {
+        return actual != null &&
+                actual.getMaterials().equals(expected.getMaterials()) &&
+                actual.getSpawners().equals(expected.getSpawners()) &&
+                Math.abs(actual.getWorth(WorthType.BLOCK) - expected.getWorth(WorthType.BLOCK)) < 0.01;
+    }
+
+    private static long time(Task task) throws Exception {
+        long start = System.nanoTime();
+        task.run();
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private interface Task {
+        void run() throws Exception;
+    }
+
+    private interface Writer {
+        void saveChunks(List<Map.Entry<ChunkPos, ChunkWorth>> chunks) throws SQLException;
+
+        void saveFactions(List<FactionWorth> factions) throws SQLException;
+    }
+
+    /**
+     * The write path used before batching, which looks up every row before
+     * updating or inserting it, each through a fresh statement and without a
+     * transaction. Faction counts which changed are updated in place rather
+     * than deleted as the old path did, which only saves round trips.
+     */
+    private static class BaselineWriter implements Writer {
+
+        private final String url;
+
+        private BaselineWriter(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void saveChunks(List<Map.Entry<ChunkPos, ChunkWorth>> chunks) throws SQLException {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+                for (Map.Entry<ChunkPos, ChunkWorth> entry : chunks) {
+                    ChunkPos pos = entry.getKey();
+                    int worldId = saveName(connection, "world", pos.getWorld());
+                    int chunkId = getId(connection, "SELECT `id` FROM `chunk` WHERE `world_id` = ? AND `x` = ? " +
+                            "AND `z` = ?", worldId, pos.getX(), pos.getZ());
+                    if (chunkId < 0) {
+                        chunkId = insert(connection, "INSERT INTO `chunk` (`world_id`, `x`, `z`) VALUES (?, ?, ?)",
+                                worldId, pos.getX(), pos.getZ());
+                    }
+
+                    ChunkWorth chunkWorth = entry.getValue();
+                    for (Map.Entry<WorthType, Double> worth : chunkWorth.getWorth().entrySet()) {
+                        saveChunkRow(connection, "chunk_worth", "worth_id", chunkId,
+                                saveName(connection, "worth", worth.getKey().name()), "worth", worth.getValue());
+                    }
+
+                    for (Map.Entry<Material, Integer> material : chunkWorth.getMaterials().entrySet()) {
+                        saveChunkRow(connection, "chunk_material_count", "material_id", chunkId,
+                                saveName(connection, "material", material.getKey().name()), "count",
+                                material.getValue());
+                    }
+
+                    for (Map.Entry<EntityType, Integer> spawner : chunkWorth.getSpawners().entrySet()) {
+                        saveChunkRow(connection, "chunk_spawner_count", "spawner_id", chunkId,
+                                saveName(connection, "spawner", spawner.getKey().name()), "count",
+                                spawner.getValue());
+                    }
+                }
+            }
+        }
+
+        @Override
+        public void saveFactions(List<FactionWorth> factions) throws SQLException {
+            try (Connection connection = DriverManager.getConnection(url, "sa", "")) {
+                for (FactionWorth faction : factions) {
+                    String factionId = faction.getFactionId();
+                    if (getId(connection, "SELECT 1 FROM `faction` WHERE `id` = ?", factionId) > 0) {
+                        execute(connection, "UPDATE `faction` SET `name` = ?, `total_worth` = ?, " +
+                                        "`total_spawners` = ? WHERE `id` = ?", faction.getName(),
+                                faction.getTotalWorth(), faction.getTotalSpawnerCount(), factionId);
+                    } else {
+                        execute(connection, "INSERT INTO `faction` (`id`, `name`, `total_worth`, " +
+                                        "`total_spawners`) VALUES (?, ?, ?, ?)", factionId, faction.getName(),
+                                faction.getTotalWorth(), faction.getTotalSpawnerCount());
+                    }
+
+                    saveFactionRows(connection, factionId, "faction_worth", "worth", "worth",
+                            faction.getWorth());
+                    saveFactionRows(connection, factionId, "faction_material_count", "material", "count",
+                            faction.getMaterials());
+                    saveFactionRows(connection, factionId, "faction_spawner_count", "spawner", "count",
+                            faction.getSpawners());
+                }
+            }
+        }
+
+        private void saveChunkRow(Connection connection, String table, String keyColumn, int chunkId, int keyId,
+                                  String valueColumn, Object value) throws SQLException {
+            int id = getId(connection, "SELECT `id` FROM `" + table + "` WHERE `chunk_id` = ? AND `" +
+                    keyColumn + "` = ?", chunkId, keyId);
+            if (id > 0) {
+                execute(connection, "UPDATE `" + table + "` SET `" + valueColumn + "` = ? WHERE `id` = ?",
+                        value, id);
+            } else {
+                insert(connection, "INSERT INTO `" + table + "` (`chunk_id`, `" + keyColumn + "`, `" +
+                        valueColumn + "`) VALUES (?, ?, ?)", chunkId, keyId, value);
+            }
+        }
+
+        private void saveFactionRows(Connection connection, String factionId, String table, String nameTable,
+                                     String valueColumn, Map<? extends Enum<?>, ?> values) throws SQLException {
+            String keyColumn = nameTable + "_id";
+
+            // The old path read every name and every existing row up front.
+            execute(connection, "SELECT `id`, `name` FROM `" + nameTable + "`");
+            Set<Integer> existing = new HashSet<>();
+            try (PreparedStatement statement = connection.prepareStatement("SELECT `" + keyColumn + "` FROM `" +
+                    table + "` WHERE `faction_id` = ?")) {
+                statement.setString(1, factionId);
+                ResultSet set = statement.executeQuery();
+                while (set.next()) {
+                    existing.add(set.getInt(1));
+                }
+            }
+
+            for (Map.Entry<? extends Enum<?>, ?> entry : values.entrySet()) {
+                int keyId = saveName(connection, nameTable, entry.getKey().name());
+                if (existing.contains(keyId)) {
+                    execute(connection, "UPDATE `" + table + "` SET `" + valueColumn + "` = ? " +
+                            "WHERE `faction_id` = ? AND `" + keyColumn + "` = ?", entry.getValue(), factionId, keyId);
+                } else {
+                    execute(connection, "INSERT INTO `" + table + "` (`faction_id`, `" + keyColumn + "`, `" +
+                            valueColumn + "`) VALUES (?, ?, ?)", factionId, keyId, entry.getValue());
+                }
+            }
+        }
+
+        private int saveName(Connection connection, String table, String name) throws SQLException {
+            int id = getId(connection, "SELECT `id` FROM `" + table + "` WHERE `name` = ?", name);
+            return id > 0 ? id : insert(connection, "INSERT INTO `" + table + "` (`name`) VALUES (?)", name);
+        }
+
+        private int getId(Connection connection, String sql, Object... parameters) throws SQLException {
+            try (PreparedStatement statement = prepare(connection, sql, Statement.NO_GENERATED_KEYS, parameters)) {
+                ResultSet set = statement.executeQuery();
+                return set.next() ? set.getInt(1) : -1;
+            }
+        }
+
+        private int insert(Connection connection, String sql, Object... parameters) throws SQLException {
+            try (PreparedStatement statement = prepare(connection, sql, Statement.RETURN_GENERATED_KEYS,
+                    parameters)) {
+                statement.executeUpdate();
+                ResultSet set = statement.getGeneratedKeys();
+                set.next();
+                return set.getInt(1);
+            }
+        }
+
+        private void execute(Connection connection, String sql, Object... parameters) throws SQLException {
+            try (PreparedStatement statement = prepare(connection, sql, Statement.NO_GENERATED_KEYS, parameters)) {
+                statement.execute();
+            }
+        }
+
+        private PreparedStatement prepare(Connection connection, String sql, int generatedKeys,
+                                          Object... parameters) throws SQLException {
+            PreparedStatement statement = connection.prepareStatement(sql, generatedKeys);
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            return statement;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package net.novucs.ftop.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AnvilChunkReaderTest {
+
+    private RegionFile regionFile;
+    private int[][] counts;
+    private Set<String> tileEntities;
+
+    @Before
+    public void setUp() throws Exception {
+        regionFile = new RegionFile(RegionFileTest.getSample());
+        counts = new int[16][1024];
+        tileEntities = new HashSet<>();
+    }
+
+    private void read(int chunkX, int chunkZ) throws IOException {
+        try (DataInputStream in = regionFile.getChunkData(chunkX, chunkZ)) {
+            AnvilChunkReader.read(in, counts, tileEntities);
+        }
+    }
+
+    @Test
+    public void testBlocks() throws IOException {
+        read(0, 0);
+        assertEquals(4000, counts[0][1]);
+        assertEquals(96, counts[0][57]);
+        assertTrue(tileEntities.isEmpty());
+    }
+
+    @Test
+    public void testAddNibbles() throws IOException {
+        read(0, 0);
+
+        // Even blocks hold the low nibble, odd blocks the high nibble.
+        assertEquals(5, counts[1][0x104]);
+        assertEquals(5, counts[1][0x204]);
+        assertEquals(0, counts[1][4]);
+        assertEquals(4086, counts[1][0]);
+    }
+
+    @Test
+    public void testSectionsOutsideWorldIgnored() throws IOException {
+        read(0, 0);
+
+        // Sections at Y -1 and 16 are entirely stone.
+        int total = 0;
+        for (int[] section : counts) {
+            for (int count : section) {
+                total += count;
+            }
+        }
+        assertEquals(4096 * 2, total);
+    }
+
+    @Test
+    public void testIdsBeyondCountsIgnored() throws IOException {
+        counts = new int[16][0x200];
+        read(0, 0);
+        assertEquals(5, counts[1][0x104]);
+        assertEquals(4086, counts[1][0]);
+    }
+
+    @Test
+    public void testTileEntities() throws IOException {
+        read(1, 0);
+        assertEquals(4096, counts[2][3]);
+        assertTrue(tileEntities.contains("MobSpawner"));
+        assertTrue(tileEntities.contains("Chest"));
+        assertEquals(2, tileEntities.size());
+    }
+
+    @Test
+    public void testIsSpawnerOrChest() {
+        assertTrue(AnvilChunkReader.isSpawnerOrChest("MobSpawner"));
+        assertTrue(AnvilChunkReader.isSpawnerOrChest("Chest"));
+        assertTrue(AnvilChunkReader.isSpawnerOrChest("minecraft:mob_spawner"));
+        assertTrue(AnvilChunkReader.isSpawnerOrChest("minecraft:chest"));
+        assertTrue(AnvilChunkReader.isSpawnerOrChest("minecraft:trapped_chest"));
+        assertFalse(AnvilChunkReader.isSpawnerOrChest("Furnace"));
+        assertFalse(AnvilChunkReader.isSpawnerOrChest("minecraft:sign"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRootNotCompound() throws IOException {
+        read(new byte[]{8, 0, 0, 0, 0});
+    }
+
+    @Test(expected = IOException.class)
+    public void testSectionWithoutBlocks() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        startSections(out);
+        out.writeByte(1);
+        out.writeUTF("Y");
+        out.writeByte(0);
+        out.writeByte(0);
+        endSections(out);
+        read(bytes.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidBlocksLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        startSections(out);
+        out.writeByte(7);
+        out.writeUTF("Blocks");
+        out.writeInt(16);
+        out.write(new byte[16]);
+        out.writeByte(0);
+        endSections(out);
+        read(bytes.toByteArray());
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncated() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        startSections(out);
+        read(bytes.toByteArray());
+    }
+
+    private void read(byte[] nbt) throws IOException {
+        AnvilChunkReader.read(new DataInputStream(new ByteArrayInputStream(nbt)), counts, tileEntities);
+    }
+
+    private static void startSections(DataOutputStream out) throws IOException {
+        out.writeByte(10);
+        out.writeUTF("");
+        out.writeByte(10);
+        out.writeUTF("Level");
+        out.writeByte(9);
+        out.writeUTF("Sections");
+        out.writeByte(10);
+        out.writeInt(1);
+    }
+
+    private static void endSections(DataOutputStream out) throws IOException {
+        out.writeByte(0);
+        out.writeByte(0);
+    }
+}
@@ -0,0 +1,141 @@
+package net.novucs.ftop.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counts a sixteen constant enum, which turns dense once four constants are
+ * counted.
+ */
+public class EnumCounterTest {
+
+    private enum Letter {
+        A, B, C, D, E, F, G, H, I, J, K, L, M, N, O, P
+    }
+
+    private EnumCounter<Letter> counter;
+
+    @Before
+    public void setUp() {
+        counter = new EnumCounter<>(Letter.class);
+    }
+
+    @Test
+    public void testSparse() {
+        counter.add(Letter.C, 3);
+        counter.add(Letter.A, 1);
+        counter.add(Letter.C, 2);
+
+        assertEquals(2, counter.size());
+        assertEquals(5, counter.get(Letter.C));
+        assertEquals(1, counter.get(Letter.A));
+        assertEquals(0, counter.get(Letter.B));
+        assertEquals(expected(Letter.A, 1, Letter.C, 5), counter.toMap());
+    }
+
+    @Test
+    public void testDense() {
+        for (Letter letter : new Letter[]{Letter.P, Letter.B, Letter.H, Letter.D, Letter.K}) {
+            counter.add(letter, letter.ordinal());
+        }
+        counter.add(Letter.H, 1);
+
+        assertEquals(5, counter.size());
+        assertEquals(8, counter.get(Letter.H));
+        assertEquals(0, counter.get(Letter.A));
+        assertEquals(expected(Letter.B, 1, Letter.D, 3, Letter.H, 8, Letter.K, 10, Letter.P, 15),
+                counter.toMap());
+    }
+
+    @Test
+    public void testNeverNegative() {
+        counter.add(Letter.A, 2);
+        counter.add(Letter.A, -5);
+        assertEquals(0, counter.get(Letter.A));
+
+        fill();
+        counter.add(Letter.A, -5);
+        assertEquals(0, counter.get(Letter.A));
+    }
+
+    @Test
+    public void testZeroCountsRemain() {
+        counter.add(Letter.A, 2);
+        counter.add(Letter.A, -2);
+        assertEquals(expected(Letter.A, 0), counter.toMap());
+
+        fill();
+        counter.setAll(Collections.singletonMap(Letter.B, 4));
+        assertEquals(Letter.values().length, counter.size());
+        assertEquals(4, counter.get(Letter.B));
+        assertEquals(0, counter.get(Letter.C));
+    }
+
+    @Test
+    public void testNextOrdinal() {
+        counter.add(Letter.B, 1);
+        counter.add(Letter.E, 1);
+        assertOrdinals(Letter.B, Letter.E);
+
+        counter.add(Letter.M, 1);
+        counter.add(Letter.G, 1);
+        counter.add(Letter.A, 1);
+        assertOrdinals(Letter.A, Letter.B, Letter.E, Letter.G, Letter.M);
+        assertEquals(Letter.M, counter.getConstant(counter.nextOrdinal(Letter.H.ordinal())));
+        assertEquals(-1, counter.nextOrdinal(Letter.N.ordinal()));
+    }
+
+    @Test
+    public void testCopy() {
+        counter.add(Letter.A, 1);
+        EnumCounter<Letter> sparse = new EnumCounter<>(counter);
+        fill();
+        EnumCounter<Letter> dense = new EnumCounter<>(counter);
+        counter.add(Letter.A, 5);
+
+        assertEquals(1, sparse.get(Letter.A));
+        assertEquals(1, sparse.size());
+        assertEquals(2, dense.get(Letter.A));
+        assertEquals(Letter.values().length, dense.size());
+    }
+
+    @Test
+    public void testAddAndRemoveCounters() {
+        EnumCounter<Letter> other = new EnumCounter<>(Letter.class);
+        fill();
+        other.add(Letter.C, 2);
+
+        counter.removeAll(other);
+        assertEquals(0, counter.get(Letter.C));
+        counter.addAll(other);
+        other.addAll(counter);
+        assertEquals(4, other.get(Letter.C));
+        assertEquals(1, other.get(Letter.P));
+    }
+
+    private void fill() {
+        for (Letter letter : Letter.values()) {
+            counter.add(letter, 1);
+        }
+    }
+
+    private void assertOrdinals(Letter... letters) {
+        List<Letter> walked = new ArrayList<>();
+        for (int ordinal = counter.nextOrdinal(0); ordinal != -1; ordinal = counter.nextOrdinal(ordinal + 1)) {
+            walked.add(counter.getConstant(ordinal));
+        }
+        assertEquals(Arrays.asList(letters), walked);
+    }
+
+    private static Map<Letter, Integer> expected(Object... entries) {
+        Map<Letter, Integer> map = new EnumMap<>(Letter.class);
+        for (int i = 0; i < entries.length; i += 2) {
+            map.put((Letter) entries[i], (Integer) entries[i + 1]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,117 @@
+package net.novucs.ftop.util;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the tree against a sorted list, ordered by score descending and then
+ * by ID ascending.
+ */
+public class OrderStatisticTreeTest {
+
+    private OrderStatisticTree<String> tree;
+    private Map<String, Double> scores;
+
+    @Before
+    public void setUp() {
+        tree = new OrderStatisticTree<>();
+        scores = new HashMap<>();
+    }
+
+    @Test
+    public void testOrder() {
+        put("b", 10);
+        put("a", 10);
+        put("c", 20);
+        put("d", 5);
+
+        assertEquals(Arrays.asList("c", "a", "b", "d"), tree.asList());
+        assertEquals(0, tree.rankOf("c"));
+        assertEquals(2, tree.rankOf("b"));
+        assertEquals(-1, tree.rankOf("e"));
+        assertEquals("a", tree.get(1));
+    }
+
+    @Test
+    public void testPutReplaces() {
+        put("a", 10);
+        put("b", 5);
+        put("a", 1);
+
+        assertEquals(2, tree.size());
+        assertEquals(Arrays.asList("b", "a"), tree.asList());
+    }
+
+    @Test
+    public void testUpdateMissing() {
+        assertFalse(tree.update("a", 1));
+        assertNull(tree.remove("a"));
+        assertEquals(0, tree.size());
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testGetOutOfRange() {
+        put("a", 1);
+        tree.get(1);
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Random random = new Random(1);
+
+        for (int i = 0; i < 20_000; i++) {
+            String id = "f" + random.nextInt(300);
+
+            // Few distinct scores, so ties broken by ID are common.
+            double score = random.nextInt(40);
+
+            switch (random.nextInt(3)) {
+                case 0:
+                    put(id, score);
+                    break;
+                case 1:
+                    assertEquals(scores.containsKey(id), tree.update(id, score));
+                    scores.computeIfPresent(id, (key, previous) -> score);
+                    break;
+                default:
+                    assertEquals(scores.remove(id) != null, tree.remove(id) != null);
+                    break;
+            }
+
+            if (i % 100 == 0) {
+                assertMatches();
+            }
+        }
+
+        assertMatches();
+    }
+
+    private void put(String id, double score) {
+        tree.put(id, score, id);
+        scores.put(id, score);
+    }
+
+    private void assertMatches() {
+        List<String> expected = new ArrayList<>(scores.keySet());
+        expected.sort(Comparator.comparing((String id) -> scores.get(id)).reversed()
+                .thenComparing(Comparator.naturalOrder()));
+
+        List<String> visited = new ArrayList<>();
+        tree.forEach(visited::add);
+
+        assertEquals(expected.size(), tree.size());
+        assertEquals(expected, visited);
+        assertEquals(expected, tree.asList());
+
+        for (int rank = 0; rank < expected.size(); rank++) {
+            String id = expected.get(rank);
+            assertEquals(rank, tree.rankOf(id));
+            assertEquals(id, tree.get(rank));
+            assertEquals(id, tree.get(id));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package net.novucs.ftop.util;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * Reads the sample region file r.0.0.mca, which holds a zlib chunk at 0, 0,
+ * a gzip chunk at 1, 0, a chunk outside the file at 2, 0, a chunk with an
+ * invalid length at 3, 0 and a chunk with unknown compression at 5, 0.
+ */
+public class RegionFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private RegionFile regionFile;
+
+    @Before
+    public void setUp() throws Exception {
+        regionFile = new RegionFile(getSample());
+    }
+
+    static File getSample() throws Exception {
+        return new File(RegionFileTest.class.getResource("/region/r.0.0.mca").toURI());
+    }
+
+    @Test
+    public void testGetFile() {
+        File folder = new File("region");
+        assertEquals(new File(folder, "r.0.0.mca"), RegionFile.getFile(folder, 31, 0));
+        assertEquals(new File(folder, "r.1.-1.mca"), RegionFile.getFile(folder, 32, -1));
+        assertEquals(new File(folder, "r.-2.0.mca"), RegionFile.getFile(folder, -33, 31));
+    }
+
+    @Test
+    public void testMissingChunk() throws IOException {
+        assertNull(regionFile.getChunkData(4, 0));
+        assertNull(regionFile.getChunkData(31, 31));
+    }
+
+    @Test
+    public void testZlibChunk() throws IOException {
+        try (DataInputStream in = regionFile.getChunkData(0, 0)) {
+            assertEquals(10, in.readUnsignedByte());
+            assertEquals("", in.readUTF());
+        }
+    }
+
+    @Test
+    public void testGzipChunk() throws IOException {
+        try (DataInputStream in = regionFile.getChunkData(1, 0)) {
+            assertEquals(10, in.readUnsignedByte());
+            assertEquals("", in.readUTF());
+        }
+    }
+
+    @Test
+    public void testChunkCoordinatesWrap() throws IOException {
+        try (DataInputStream in = regionFile.getChunkData(32, -32)) {
+            assertNotNull(in);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOffsetOutsideFile() throws IOException {
+        regionFile.getChunkData(2, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testInvalidLength() throws IOException {
+        regionFile.getChunkData(3, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnknownCompression() throws IOException {
+        regionFile.getChunkData(5, 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingHeader() throws IOException {
+        File file = folder.newFile("r.0.0.mca");
+        Files.write(file.toPath(), new byte[4096]);
+        new RegionFile(file);
+    }
+}
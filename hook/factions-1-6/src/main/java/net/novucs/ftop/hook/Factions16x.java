@@ -29,7 +29,7 @@ public class Factions16x extends FactionsHook {
     }
 
     @Override
-    public String getFactionAt(String worldName, int chunkX, int chunkZ) {
+    protected String lookupFactionAt(String worldName, int chunkX, int chunkZ) {
         Faction faction = Board.getInstance().getFactionAt(new FLocation(worldName, chunkX, chunkZ));
         return faction.getId();
     }
@@ -124,10 +124,13 @@ public class Factions16x extends FactionsHook {
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void onClaim(LandUnclaimAllEvent event) {
+        String factionId = event.getFaction().getId();
         Multimap<String, ChunkPos> claims = HashMultimap.create();
-        for (FLocation location : event.getFaction().getClaimOwnership().keySet()) {
-            claims.put(event.getFaction().getId(), getChunkPos(location));
-        }
+
+        flocationIds.entrySet().stream()
+                .filter(entry -> factionId.equals(entry.getValue()))
+                .forEach(entry -> claims.put(factionId, getChunkPos(entry.getKey())));
+
         callEvent(new FactionClaimEvent(Factions.getInstance().getNone().getId(), claims));
     }
 
@@ -45,7 +45,7 @@ public class Factions18x extends FactionsHook {
     }
 
     @Override
-    public String getFactionAt(String worldName, int chunkX, int chunkZ) {
+    protected String lookupFactionAt(String worldName, int chunkX, int chunkZ) {
         Faction faction = Board.getFactionAt(new FLocation(worldName, chunkX, chunkZ));
         return faction.getId();
     }
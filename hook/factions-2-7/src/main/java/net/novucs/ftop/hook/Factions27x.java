@@ -34,7 +34,7 @@ public class Factions27x extends FactionsHook {
     }
 
     @Override
-    public String getFactionAt(String worldName, int chunkX, int chunkZ) {
+    protected String lookupFactionAt(String worldName, int chunkX, int chunkZ) {
         Faction faction = BoardColl.get().getFactionAt(PS.valueOf(worldName, chunkX, chunkZ));
         return faction.getId();
     }
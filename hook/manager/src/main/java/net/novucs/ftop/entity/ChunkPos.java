@@ -4,11 +4,18 @@ import org.bukkit.Chunk;
 import org.bukkit.ChunkSnapshot;
 import org.bukkit.Server;
 
-import java.util.Objects;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 public class ChunkPos {
 
+    private static final Map<String, Integer> WORLD_IDS = new ConcurrentHashMap<>();
+    private static final List<String> WORLD_NAMES = new CopyOnWriteArrayList<>();
+
     private final String world;
+    private final int worldId;
     private final int x;
     private final int z;
 
@@ -24,8 +31,53 @@ public class ChunkPos {
         return new ChunkPos(world, x, z);
     }
 
+    /**
+     * Gets the small integer ID interned for a world name, IDs are assigned
+     * in order of first use and are never reused while running.
+     *
+     * @param world the world name.
+     * @return the world ID.
+     */
+    public static int getWorldId(String world) {
+        Integer id = WORLD_IDS.get(world);
+        if (id != null) {
+            return id;
+        }
+
+        synchronized (WORLD_IDS) {
+            return WORLD_IDS.computeIfAbsent(world, k -> {
+                WORLD_NAMES.add(k);
+                return WORLD_NAMES.size() - 1;
+            });
+        }
+    }
+
+    public static String getWorldName(int worldId) {
+        return WORLD_NAMES.get(worldId);
+    }
+
+    /**
+     * Packs chunk coordinates into a single long key.
+     *
+     * @param x the chunk x.
+     * @param z the chunk z.
+     * @return the packed key.
+     */
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int unpackZ(long key) {
+        return (int) key;
+    }
+
     private ChunkPos(String world, int x, int z) {
-        this.world = world;
+        this.worldId = getWorldId(world);
+        this.world = getWorldName(worldId);
         this.x = x;
         this.z = z;
     }
@@ -34,6 +86,14 @@ public class ChunkPos {
         return world;
     }
 
+    public int getWorldId() {
+        return worldId;
+    }
+
+    public long getKey() {
+        return pack(x, z);
+    }
+
     public int getX() {
         return x;
     }
@@ -52,14 +112,14 @@ public class ChunkPos {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         ChunkPos chunkPos = (ChunkPos) o;
-        return x == chunkPos.x &&
-                z == chunkPos.z &&
-                Objects.equals(world, chunkPos.world);
+        return worldId == chunkPos.worldId &&
+                x == chunkPos.x &&
+                z == chunkPos.z;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(world, x, z);
+        return 31 * (31 * worldId + x) + z;
     }
 
     @Override
@@ -2,19 +2,29 @@ package net.novucs.ftop.hook;
 
 import net.novucs.ftop.PluginService;
 import net.novucs.ftop.entity.ChunkPos;
+import net.novucs.ftop.hook.event.FactionClaimEvent;
+import net.novucs.ftop.hook.event.FactionDisbandEvent;
+import net.novucs.ftop.util.LongObjectMap;
 import org.bukkit.ChatColor;
+import org.bukkit.Chunk;
+import org.bukkit.World;
 import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.HandlerList;
 import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkUnloadEvent;
 import org.bukkit.plugin.Plugin;
 
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
 
 public abstract class FactionsHook implements Listener, PluginService {
 
     private final Plugin plugin;
+    private final List<LongObjectMap<String>> owners = new ArrayList<>();
+    private final Map<String, Set<ChunkPos>> ownedChunks = new HashMap<>();
+    private final List<ChunkPos> unloaded = new ArrayList<>();
 
     public FactionsHook(Plugin plugin) {
         this.plugin = plugin;
@@ -32,17 +42,144 @@ public abstract class FactionsHook implements Listener, PluginService {
     @Override
     public void terminate() {
         HandlerList.unregisterAll(this);
+        owners.clear();
+        ownedChunks.clear();
+        unloaded.clear();
     }
 
     public String getFactionAt(ChunkPos pos) {
-        return getFactionAt(pos.getWorld(), pos.getX(), pos.getZ());
+        return getFactionAt(pos.getWorldId(), pos.getWorld(), pos.getX(), pos.getZ());
+    }
+
+    public String getFactionAt(Chunk chunk) {
+        return getFactionAt(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
     }
 
     public String getFactionAt(Block block) {
-        return getFactionAt(block.getWorld().getName(), block.getChunk().getX(), block.getChunk().getZ());
+        return getFactionAt(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    public String getFactionAt(String worldName, int chunkX, int chunkZ) {
+        return getFactionAt(ChunkPos.getWorldId(worldName), worldName, chunkX, chunkZ);
+    }
+
+    /**
+     * Gets the faction owning a chunk, cached on the main thread while the
+     * chunk is loaded until it is claimed or its owner disbands.
+     */
+    private String getFactionAt(int worldId, String worldName, int chunkX, int chunkZ) {
+        if (!plugin.getServer().isPrimaryThread()) {
+            return lookupFactionAt(worldName, chunkX, chunkZ);
+        }
+
+        long key = ChunkPos.pack(chunkX, chunkZ);
+        String factionId = getOwnerTable(worldId).get(key);
+        if (factionId == null) {
+            factionId = lookupFactionAt(worldName, chunkX, chunkZ);
+
+            // Only loaded chunks are cached, so the cache is bounded by the
+            // chunks loaded.
+            if (factionId != null && isChunkLoaded(worldName, chunkX, chunkZ)) {
+                setOwner(ChunkPos.of(worldName, chunkX, chunkZ), factionId);
+            }
+        }
+        return factionId;
+    }
+
+    private boolean isChunkLoaded(String worldName, int chunkX, int chunkZ) {
+        World world = plugin.getServer().getWorld(worldName);
+        return world != null && world.isChunkLoaded(chunkX, chunkZ);
+    }
+
+    private LongObjectMap<String> getOwnerTable(int worldId) {
+        while (owners.size() <= worldId) {
+            owners.add(new LongObjectMap<>());
+        }
+        return owners.get(worldId);
+    }
+
+    private void setOwner(ChunkPos pos, String factionId) {
+        String previous = getOwnerTable(pos.getWorldId()).put(pos.getKey(), factionId);
+        if (previous != null) {
+            removeOwnedChunk(previous, pos);
+        }
+        ownedChunks.computeIfAbsent(factionId, k -> new HashSet<>()).add(pos);
+    }
+
+    private void removeOwner(ChunkPos pos) {
+        String previous = getOwnerTable(pos.getWorldId()).remove(pos.getKey());
+        if (previous != null) {
+            removeOwnedChunk(previous, pos);
+        }
+    }
+
+    private void removeOwnedChunk(String factionId, ChunkPos pos) {
+        Set<ChunkPos> chunks = ownedChunks.get(factionId);
+        if (chunks != null && chunks.remove(pos) && chunks.isEmpty()) {
+            ownedChunks.remove(factionId);
+        }
+    }
+
+    /**
+     * Looks up the faction owning a chunk from the factions plugin.
+     *
+     * @param worldName the world name.
+     * @param chunkX    the chunk x coordinate.
+     * @param chunkZ    the chunk z coordinate.
+     * @return the faction ID.
+     */
+    protected abstract String lookupFactionAt(String worldName, int chunkX, int chunkZ);
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void updateOwner(FactionClaimEvent event) {
+        // Claim events fire before the board changes, so cache the new owner
+        // rather than risk caching the old one again.
+        for (ChunkPos pos : event.getClaims().values()) {
+            if (isChunkLoaded(pos.getWorld(), pos.getX(), pos.getZ())) {
+                setOwner(pos, event.getFactionId());
+            } else {
+                removeOwner(pos);
+            }
+        }
+    }
+
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void removeOwner(FactionDisbandEvent event) {
+        // Forget the claims again once the board has changed, in case any
+        // were looked up in the meantime.
+        removeOwner(event.getFactionId());
+        plugin.getServer().getScheduler().runTask(plugin, () -> removeOwner(event.getFactionId()));
     }
 
-    public abstract String getFactionAt(String worldName, int chunkX, int chunkZ);
+    private void removeOwner(String factionId) {
+        Set<ChunkPos> chunks = ownedChunks.remove(factionId);
+        if (chunks == null) {
+            return;
+        }
+
+        for (ChunkPos pos : chunks) {
+            getOwnerTable(pos.getWorldId()).remove(pos.getKey());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void removeOwner(ChunkUnloadEvent event) {
+        // Other unload listeners may yet look up the chunk, so forget it on
+        // the next tick should it still be unloaded.
+        if (unloaded.isEmpty()) {
+            plugin.getServer().getScheduler().runTask(plugin, this::removeUnloaded);
+        }
+        unloaded.add(ChunkPos.of(event.getChunk()));
+    }
+
+    private void removeUnloaded() {
+        for (ChunkPos pos : unloaded) {
+            if (!isChunkLoaded(pos.getWorld(), pos.getX(), pos.getZ())) {
+                removeOwner(pos);
+            }
+        }
+        unloaded.clear();
+    }
 
     public abstract String getFaction(Player player);
 
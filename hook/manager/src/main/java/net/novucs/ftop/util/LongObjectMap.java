@@ -0,0 +1,163 @@
+package net.novucs.ftop.util;
+
+import java.util.Arrays;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * An open addressing hash map with primitive long keys, using linear probing
+ * and backward shift deletion so no lookup allocates.
+ *
+ * @param <V> the value type, null values are not permitted.
+ */
+public class LongObjectMap<V> {
+
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private Object[] values;
+    private int size;
+    private int mask;
+
+    public LongObjectMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public LongObjectMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return values[indexOf(key)] != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        return (V) values[indexOf(key)];
+    }
+
+    /**
+     * Associates a value with a key.
+     *
+     * @param key   the key.
+     * @param value the value, must not be null.
+     * @return the previous value, or null if none.
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) {
+            throw new NullPointerException("Null values are not permitted");
+        }
+
+        int index = indexOf(key);
+        V prev = (V) values[index];
+        keys[index] = key;
+        values[index] = value;
+
+        if (prev == null && ++size > (mask + 1) * 3 / 4) {
+            rehash((mask + 1) << 1);
+        }
+        return prev;
+    }
+
+    /**
+     * Removes the value associated with a key.
+     *
+     * @param key the key.
+     * @return the removed value, or null if none.
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int index = indexOf(key);
+        V prev = (V) values[index];
+        if (prev == null) {
+            return null;
+        }
+
+        // Shift back any following entries which would no longer be
+        // reachable through the removed slot.
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == null) {
+                break;
+            }
+
+            int ideal = slot(keys[next]);
+            if (((next - ideal) & mask) >= ((next - index) & mask)) {
+                keys[index] = keys[next];
+                values[index] = values[next];
+                index = next;
+            }
+        }
+
+        values[index] = null;
+        size--;
+        return prev;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(ObjLongConsumer<V> consumer) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                consumer.accept((V) values[i], keys[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the slot holding a key, or the empty slot it would be placed in.
+     */
+    private int indexOf(long key) {
+        int index = slot(key);
+        while (values[index] != null && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private int slot(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+
+        for (int i = 0; i < oldValues.length; i++) {
+            if (oldValues[i] != null) {
+                int index = indexOf(oldKeys[i]);
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3 / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,121 @@
+package net.novucs.ftop.util;
+
+import net.novucs.ftop.entity.ChunkPos;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongObjectMapTest {
+
+    private LongObjectMap<String> map;
+
+    @Before
+    public void setUp() {
+        map = new LongObjectMap<>();
+    }
+
+    @Test
+    public void testPutAndGet() {
+        assertNull(map.put(1, "a"));
+        assertEquals("a", map.put(1, "b"));
+        assertEquals("b", map.get(1));
+        assertNull(map.get(2));
+        assertTrue(map.containsKey(1));
+        assertFalse(map.containsKey(2));
+        assertEquals(1, map.size());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNullValue() {
+        map.put(1, null);
+    }
+
+    @Test
+    public void testCollisions() {
+        // Multiples of 16 hash to only a few slots of the smallest table, so
+        // these keys share long probe chains, some wrapping around its end.
+        // Removing every other key then has to shift the rest back.
+        for (long key = 0; key < 12; key++) {
+            map.put(key << 4, "v" + key);
+        }
+
+        for (long key = 0; key < 12; key += 2) {
+            assertEquals("v" + key, map.remove(key << 4));
+        }
+
+        assertEquals(6, map.size());
+        for (long key = 0; key < 12; key++) {
+            assertEquals(key % 2 == 0 ? null : "v" + key, map.get(key << 4));
+        }
+    }
+
+    @Test
+    public void testRemoveThenReinsert() {
+        map.put(5, "a");
+        assertEquals("a", map.remove(5));
+        assertNull(map.remove(5));
+        assertTrue(map.isEmpty());
+
+        assertNull(map.put(5, "b"));
+        assertEquals("b", map.get(5));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testResize() {
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i, Integer.toString(i));
+        }
+
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(Integer.toString(i), map.get(i));
+        }
+    }
+
+    @Test
+    public void testNegativeChunkKeys() {
+        for (int x = -20; x <= 20; x++) {
+            for (int z = -20; z <= 20; z++) {
+                map.put(ChunkPos.pack(x, z), x + "," + z);
+            }
+        }
+
+        assertEquals(41 * 41, map.size());
+        assertEquals("-1,-1", map.get(ChunkPos.pack(-1, -1)));
+        assertEquals("-20,0", map.get(ChunkPos.pack(-20, 0)));
+        assertEquals("0,-20", map.get(ChunkPos.pack(0, -20)));
+        assertNull(map.get(ChunkPos.pack(-21, 0)));
+
+        map.forEach((value, key) ->
+                assertEquals(ChunkPos.unpackX(key) + "," + ChunkPos.unpackZ(key), value));
+    }
+
+    @Test
+    public void testRandomOperations() {
+        Map<Long, String> expected = new HashMap<>();
+        Random random = new Random(1);
+
+        for (int i = 0; i < 50_000; i++) {
+            long key = ChunkPos.pack(random.nextInt(64) - 32, random.nextInt(64) - 32);
+            if (random.nextBoolean()) {
+                String value = Integer.toString(i);
+                assertEquals(expected.put(key, value), map.put(key, value));
+            } else {
+                assertEquals(expected.remove(key), map.remove(key));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        expected.forEach((key, value) -> assertEquals(value, map.get(key)));
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(ChunkPos.pack(0, 0)));
+    }
+}
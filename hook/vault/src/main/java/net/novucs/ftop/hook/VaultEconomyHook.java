@@ -17,12 +17,16 @@ public class VaultEconomyHook extends BukkitRunnable implements EconomyHook, Lis
 
     private final Plugin plugin;
     private final Set<String> factionIds;
-    private final Map<UUID, Double> playerBalances = new HashMap<>();
-    private final Map<String, Double> factionBalances = new HashMap<>();
+    private final Map<UUID, Account> playerAccounts = new HashMap<>();
+    private final Map<String, Account> factionAccounts = new HashMap<>();
+    private final Queue<Account> schedule = new PriorityQueue<>();
     private boolean enabled;
     private boolean playerEnabled;
     private boolean factionEnabled;
     private int liquidUpdateTicks;
+    private int liquidPollsPerTick;
+    private long tick;
+    private long sequence;
     private Economy economy;
 
     public VaultEconomyHook(Plugin plugin, Set<String> factionIds) {
@@ -31,7 +35,11 @@ public class VaultEconomyHook extends BukkitRunnable implements EconomyHook, Lis
     }
 
     public void setLiquidUpdateTicks(int liquidUpdateTicks) {
-        this.liquidUpdateTicks = liquidUpdateTicks;
+        this.liquidUpdateTicks = Math.max(1, liquidUpdateTicks);
+    }
+
+    public void setLiquidPollsPerTick(int liquidPollsPerTick) {
+        this.liquidPollsPerTick = liquidPollsPerTick;
     }
 
     @Override
@@ -45,7 +53,8 @@ public class VaultEconomyHook extends BukkitRunnable implements EconomyHook, Lis
         }
 
         plugin.getServer().getPluginManager().registerEvents(this, plugin);
-        runTaskTimer(plugin, liquidUpdateTicks, liquidUpdateTicks);
+        plugin.getServer().getOnlinePlayers().forEach(player -> addPlayer(player, Double.NaN));
+        runTaskTimer(plugin, 1, 1);
         enabled = true;
     }
 
@@ -54,6 +63,9 @@ public class VaultEconomyHook extends BukkitRunnable implements EconomyHook, Lis
         if (enabled) {
             HandlerList.unregisterAll(this);
             cancel();
+            playerAccounts.clear();
+            factionAccounts.clear();
+            schedule.clear();
             enabled = false;
         }
     }
@@ -94,78 +106,143 @@ public class VaultEconomyHook extends BukkitRunnable implements EconomyHook, Lis
 
     @Override
     public void run() {
-        // Tick players if enabled.
-        if (playerEnabled) {
-            tickPlayers();
-        }
+        tick++;
 
-        // Tick factions if enabled.
-        if (factionEnabled) {
-            tickFactions();
+        // Track factions as they are created and disbanded.
+        if ((tick - 1) % liquidUpdateTicks == 0) {
+            updateFactions();
         }
-    }
 
-    private void tickPlayers() {
-        Double oldBalance;
-        Double newBalance;
-        UUID playerId;
-
-        // Iterate through every player on the server.
-        for (Player player : plugin.getServer().getOnlinePlayers()) {
-            // Get their previous and current balances.
-            playerId = player.getUniqueId();
-            oldBalance = playerBalances.get(playerId);
-            newBalance = economy.getBalance(player);
-
-            // Add new balance if player is not already added to the cache.
-            if (oldBalance == null) {
-                playerBalances.put(playerId, newBalance);
+        // Poll the accounts which have been due the longest, any remaining
+        // are spread over the following ticks.
+        int polls = liquidPollsPerTick;
+        Account account;
+        while (polls > 0 && (account = schedule.peek()) != null && account.nextPoll <= tick) {
+            schedule.poll();
+            if (account.removed) {
                 continue;
             }
 
-            // Call PlayerEconomyEvent if their balance has changed.
-            if (oldBalance.doubleValue() != newBalance.doubleValue()) {
-                playerBalances.put(playerId, newBalance);
-                callEvent(new PlayerEconomyEvent(player, oldBalance, newBalance));
+            if (poll(account)) {
+                polls--;
             }
+            schedule(account, account.interval);
         }
     }
 
-    private void tickFactions() {
-        Double oldBalance;
-        Double newBalance;
+    /**
+     * Polls the balance of an account, calling an economy event if changed.
+     * Changing accounts are polled more often, idle accounts less often.
+     *
+     * @param account the account.
+     * @return true if the economy was polled.
+     */
+    private boolean poll(Account account) {
+        boolean player = account.player != null;
+        if (player ? !playerEnabled : !factionEnabled) {
+            return false;
+        }
 
-        // Iterate through every faction on the server.
-        for (String factionId : factionIds) {
-            // Get their previous and current balances.
-            oldBalance = factionBalances.getOrDefault(factionId, 0d);
-            newBalance = economy.getBalance("faction-" + factionId);
+        double oldBalance = account.balance;
+        double newBalance = player ? economy.getBalance(account.player) :
+                economy.getBalance("faction-" + account.factionId);
+        account.balance = newBalance;
 
-            // Add new balance if faction is not already added to the cache.
-            if (oldBalance == null) {
-                factionBalances.put(factionId, newBalance);
-                continue;
+        int minInterval = Math.max(1, liquidUpdateTicks / 4);
+        int maxInterval = liquidUpdateTicks * 8;
+        if (oldBalance == newBalance) {
+            account.interval = Math.min(account.interval * 2, maxInterval);
+            return true;
+        }
+
+        account.interval = minInterval;
+
+        // Balances are first cached without an event.
+        if (Double.isNaN(oldBalance)) {
+            return true;
+        }
+
+        if (player) {
+            callEvent(new PlayerEconomyEvent(account.player, oldBalance, newBalance));
+        } else {
+            callEvent(new FactionEconomyEvent(account.factionId, oldBalance, newBalance));
+        }
+        return true;
+    }
+
+    private void updateFactions() {
+        for (String factionId : factionIds) {
+            if (!factionAccounts.containsKey(factionId)) {
+                Account account = new Account(null, factionId, 0, liquidUpdateTicks);
+                factionAccounts.put(factionId, account);
+                schedule(account, 1 + (int) (sequence % liquidUpdateTicks));
             }
+        }
 
-            // Call FactionEconomyEvent if their balance has changed.
-            if (oldBalance.doubleValue() != newBalance.doubleValue()) {
-                factionBalances.put(factionId, newBalance);
-                callEvent(new FactionEconomyEvent(factionId, oldBalance, newBalance));
+        Iterator<Account> it = factionAccounts.values().iterator();
+        while (it.hasNext()) {
+            Account account = it.next();
+            if (!factionIds.contains(account.factionId)) {
+                account.removed = true;
+                it.remove();
             }
         }
     }
 
+    private void addPlayer(Player player, double balance) {
+        Account account = new Account(player, null, balance, liquidUpdateTicks);
+        Account previous = playerAccounts.put(player.getUniqueId(), account);
+        if (previous != null) {
+            previous.removed = true;
+        }
+        schedule(account, 1 + (int) (sequence % liquidUpdateTicks));
+    }
+
+    private void schedule(Account account, int delay) {
+        account.nextPoll = tick + Math.max(1, delay);
+        account.sequence = sequence++;
+        schedule.add(account);
+    }
+
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void addPlayer(PlayerJoinEvent event) {
-        playerBalances.put(event.getPlayer().getUniqueId(), economy.getBalance(event.getPlayer()));
+        addPlayer(event.getPlayer(), economy.getBalance(event.getPlayer()));
     }
 
     @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
     public void clearPlayerData(PlayerQuitEvent event) {
-        playerBalances.remove(event.getPlayer().getUniqueId());
+        Account account = playerAccounts.remove(event.getPlayer().getUniqueId());
+        if (account != null) {
+            account.removed = true;
+        }
     }
 
     private void callEvent(Event event) {
         plugin.getServer().getPluginManager().callEvent(event);
     }
+
+    private static class Account implements Comparable<Account> {
+
+        private final Player player;
+        private final String factionId;
+        private double balance;
+        private int interval;
+        private long nextPoll;
+        private long sequence;
+        private boolean removed;
+
+        private Account(Player player, String factionId, double balance, int interval) {
+            this.player = player;
+            this.factionId = factionId;
+            this.balance = balance;
+            this.interval = interval;
+        }
+
+        @Override
+        public int compareTo(Account other) {
+            // Accounts due on the same tick are polled in the order queued.
+            int compare = Long.compare(nextPoll, other.nextPoll);
+            return compare != 0 ? compare : Long.compare(sequence, other.sequence);
+        }
+    }
 }